@@ -0,0 +1,245 @@
+// Two-player alpha-beta search over full game states (EXPERT difficulty).
+// Unlike Greedy, the human's replies are searched too: the CPU maximises
+// cpuScore - humanScore, the human minimises it.
+public class AlphaBetaEngine {
+
+    private static final int MAX_DEPTH = 32;
+    // Finished games score about +-WIN. Evaluations stay far below TERMINAL even on the
+    // largest board, so anything beyond it is a finished game, offset by its ply.
+    private static final double WIN = 1_000_000_000;
+    private static final double TERMINAL = WIN / 2;
+    private static final double RACE_GEM = 30;  // per gem a side wins the race to, see RaceMap
+
+    // Zobrist kinds used on top of BoardModel's
+    private static final int Z_HUMAN_POS     = 10;
+    private static final int Z_CPU_POS       = 11;
+    private static final int Z_HUMAN_SHIELDS = 12;
+    private static final int Z_CPU_SHIELDS   = 13;
+    private static final int Z_SCORE_DIFF    = 14;
+    private static final long Z_CPU_TO_MOVE  = BoardModel.zobrist(15, 0);
+
+    // One table per thread, reset for every decision
+    private static final ThreadLocal<TranspositionTable> TABLES =
+        ThreadLocal.withInitial(() -> new TranspositionTable(18));
+
+    private final TranspositionTable tt = TABLES.get();
+    private final long deadline;
+    private final int checkMask;
+    private boolean checkTime = false;
+    private long nodes = 0;
+
+    // Move ordering state: two killer moves per ply, history per (side, direction).
+    // History is halved every iteration and whenever an entry passes HISTORY_LIMIT, so
+    // it stays below the capture term of the ordering key and old cutoffs fade out.
+    private static final int HISTORY_LIMIT = 1 << 20;
+    private final int[][] killers = new int[MAX_DEPTH + 1][2];
+    private final int[][] history = new int[2][Direction.ALL.length];
+
+    // Scratch reused across nodes: each ply's ordered moves, and the sort keys of the
+    // node being ordered (orderedMoves does not recurse, so one set is enough)
+    private final int[][] plyMoves = new int[MAX_DEPTH + 1][Direction.ALL.length];
+    private final long[] orderKeys = new long[Direction.ALL.length];
+
+    private AlphaBetaEngine(BoardModel m, long deadline) {
+        this.deadline = deadline;
+        // Collecting an item patches whole board lines, so big boards look at the clock more often
+        this.checkMask = m.rows * m.cols > 10_000 ? 63 : 1023;
+        tt.newSearch();
+        for (int[] k : killers) k[0] = k[1] = TranspositionTable.NO_MOVE;
+    }
+
+    // Searches a private copy of m, playing and taking back moves on it in place.
+    // m's race map is brought up to date before the clock starts; see Greedy.prepare.
+    public static Greedy.Decision decide(BoardModel m, long budgetMillis) {
+        m.raceMap(false);
+        long start = System.nanoTime();
+        m = m.snapshot();
+        AlphaBetaEngine engine = new AlphaBetaEngine(m, start + budgetMillis * 1_000_000L);
+
+        Direction best = null;
+        int completed = 0;
+        // Iterative deepening; the table's best moves order the next iteration.
+        // Depth 1 always runs, so the CPU never passes while it has a safe move.
+        for (int depth = 1; depth <= MAX_DEPTH && (depth == 1 || engine.hasTime()); depth++) {
+            try {
+                int move = engine.searchRoot(m, depth);
+                best = move == TranspositionTable.NO_MOVE ? null : Direction.ALL[move];
+            } catch (SearchTimeout e) {
+                break;  // moves applied by the aborted iteration are left on the copy
+            }
+            completed = depth;
+            engine.checkTime = true;
+        }
+        return new Greedy.Decision(best, completed, engine.nodes, System.nanoTime() - start);
+    }
+
+    private boolean hasTime() {
+        return System.nanoTime() < deadline && !Thread.currentThread().isInterrupted();
+    }
+
+    private int searchRoot(BoardModel m, int depth) {
+        for (int[] h : history) halve(h);
+        int[] moves = plyMoves[0];
+        int count = orderedMoves(m, true, 0, moves);
+        if (count == 0) return TranspositionTable.NO_MOVE;
+
+        double alpha = -Double.MAX_VALUE;
+        int bestMove = moves[0];
+        for (int i = 0; i < count; i++) {
+            play(m, true, moves[i]);
+            double value = -negamax(m, false, depth - 1, 1, -Double.MAX_VALUE, -alpha);
+            m.undo();
+            if (value > alpha) {
+                alpha = value;
+                bestMove = moves[i];
+            }
+        }
+        tt.store(key(m, true), depth, alpha, TranspositionTable.EXACT, bestMove);
+        return bestMove;
+    }
+
+    // Value of b for the side to move
+    private double negamax(BoardModel b, boolean cpuToMove, int depth, int ply, double alpha, double beta) {
+        nodes++;
+        if (checkTime && (nodes & checkMask) == 0 && !hasTime()) throw SearchTimeout.INSTANCE;
+
+        double sign = cpuToMove ? 1 : -1;
+        if (b.gameOver) return sign * finalScore(b, ply);
+        if (depth == 0) return sign * evaluate(b);
+
+        long key = key(b, cpuToMove);
+        int slot = tt.probe(key, 0);
+        if (slot >= 0 && tt.depth(slot) >= depth) {
+            double v = fromTable(tt.value(slot), ply);
+            byte bound = tt.bound(slot);
+            if (bound == TranspositionTable.EXACT) return v;
+            if (bound == TranspositionTable.LOWER && v >= beta) return v;
+            if (bound == TranspositionTable.UPPER && v <= alpha) return v;
+        }
+
+        int[] moves = plyMoves[ply];
+        int count = orderedMoves(b, cpuToMove, ply, moves);
+        if (count == 0) {
+            // No safe move: pass, unless the opponent is stuck as well
+            if (!b.hasAnySafeMove(!cpuToMove ? b.cpuRow : b.humanRow, !cpuToMove ? b.cpuCol : b.humanCol,
+                                  !cpuToMove ? b.cpuShields : b.humanShields)) {
+                return sign * finalScore(b, ply);
+            }
+            return -negamax(b, !cpuToMove, depth - 1, ply + 1, -beta, -alpha);
+        }
+
+        double alphaIn = alpha;
+        double best = -Double.MAX_VALUE;
+        int bestMove = moves[0];
+        int side = cpuToMove ? 1 : 0;
+        for (int i = 0; i < count; i++) {
+            play(b, cpuToMove, moves[i]);
+            double value = -negamax(b, !cpuToMove, depth - 1, ply + 1, -beta, -alpha);
+            b.undo();
+            if (value > best) {
+                best = value;
+                bestMove = moves[i];
+            }
+            if (value > alpha) alpha = value;
+            if (alpha >= beta) {
+                // Cutoff: remember the refutation for sibling nodes and later iterations
+                if (killers[ply][0] != moves[i]) {
+                    killers[ply][1] = killers[ply][0];
+                    killers[ply][0] = moves[i];
+                }
+                if ((history[side][moves[i]] += depth * depth) > HISTORY_LIMIT) halve(history[side]);
+                break;
+            }
+        }
+
+        byte bound = best <= alphaIn ? TranspositionTable.UPPER
+                   : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        tt.store(key, depth, toTable(best, ply), bound, bestMove);
+        return best;
+    }
+
+    // Fills moves with the side's safe directions, best first; returns how many
+    private int orderedMoves(BoardModel b, boolean cpu, int ply, int[] moves) {
+        int r = cpu ? b.cpuRow : b.humanRow;
+        int c = cpu ? b.cpuCol : b.humanCol;
+        int shields = cpu ? b.cpuShields : b.humanShields;
+
+        int slot = tt.probe(key(b, cpu), 0);
+        int ttMove = slot >= 0 ? tt.move(slot) : TranspositionTable.NO_MOVE;
+        int side = cpu ? 1 : 0;
+
+        long[] keys = orderKeys;
+        int count = 0;
+        for (int mask = b.safeDirections(r, c, shields); mask != 0; mask &= mask - 1) {
+            int k = Integer.numberOfTrailingZeros(mask);
+            long res = b.slidePacked(r, c, Direction.ALL[k]);
+            long score;
+            if (k == ttMove) score = 1L << 40;
+            else if (k == killers[ply][0]) score = 1L << 39;
+            else if (k == killers[ply][1]) score = 1L << 38;
+            else score = ((long) (BoardModel.slideGems(res) * 2 + BoardModel.slideShields(res)) << 24)
+                       + history[side][k];  // history < 1 << 24: an item always outranks it
+            // Insertion sort, highest score first
+            int i = count++;
+            while (i > 0 && keys[i - 1] < score) {
+                keys[i] = keys[i - 1];
+                moves[i] = moves[i - 1];
+                i--;
+            }
+            keys[i] = score;
+            moves[i] = k;
+        }
+        return count;
+    }
+
+    private static void halve(int[] h) {
+        for (int k = 0; k < h.length; k++) h[k] >>= 1;
+    }
+
+    // Taken back with b.undo()
+    private static void play(BoardModel b, boolean cpu, int move) {
+        b.apply(!cpu, Direction.ALL[move]);
+        b.checkEndGame();
+    }
+
+    // CPU's point of view; gems left on the board count for whoever wins the race to them
+    private static double evaluate(BoardModel b) {
+        return (b.cpuScore - b.humanScore) * 100.0 + (b.cpuShields - b.humanShields) * 40.0
+             + (b.raceGemsWon(RaceMap.CPU) - b.raceGemsWon(RaceMap.HUMAN)) * RACE_GEM;
+    }
+
+    // CPU's point of view; quicker wins and slower losses score better
+    private static double finalScore(BoardModel b, int ply) {
+        int diff = b.cpuScore - b.humanScore;
+        if (diff > 0) return WIN - ply + diff;
+        if (diff < 0) return -WIN + ply + diff;
+        return 0;
+    }
+
+    // Finished games are stored counted from the node instead of from the root, so a
+    // transposition reached at another ply still prefers the quicker win
+    private static double toTable(double value, int ply) {
+        return value > TERMINAL ? value + ply : value < -TERMINAL ? value - ply : value;
+    }
+
+    private static double fromTable(double value, int ply) {
+        return value > TERMINAL ? value - ply : value < -TERMINAL ? value + ply : value;
+    }
+
+    private static long key(BoardModel b, boolean cpuToMove) {
+        long k = b.itemHash()
+            ^ BoardModel.zobrist(Z_HUMAN_POS, b.index(b.humanRow, b.humanCol))
+            ^ BoardModel.zobrist(Z_CPU_POS, b.index(b.cpuRow, b.cpuCol))
+            ^ BoardModel.zobrist(Z_HUMAN_SHIELDS, b.humanShields)
+            ^ BoardModel.zobrist(Z_CPU_SHIELDS, b.cpuShields)
+            ^ BoardModel.zobrist(Z_SCORE_DIFF, b.cpuScore - b.humanScore);
+        return cpuToMove ? k ^ Z_CPU_TO_MOVE : k;
+    }
+
+    // Unwinds an iteration that ran past its deadline; preallocated, no stack trace
+    private static final class SearchTimeout extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final SearchTimeout INSTANCE = new SearchTimeout();
+        private SearchTimeout() { super(null, null, false, false); }
+    }
+}
@@ -3,7 +3,75 @@ import java.util.*;
 public class BoardModel {
 
     public final int rows, cols;
-    public Cell[][] grid;
+
+    // Row-major packed cells, one byte of Cell.* flags per cell
+    private final byte[] cells;
+
+    // Packed slide entry handed out by slidePacked: destination, items collected, mine bit
+    private static final long SLIDE_DEST_MASK = 0xFFFFFFFFL;
+    private static final long SLIDE_MINE      = 1L << 63;
+
+    // Where each slide ends, as a graph; fixed once generated, shared with snapshots
+    private SlideGraph graph;
+
+    // Slide table, one char per (cell, direction) in each of two arrays:
+    // - slideSteps: cells the slide moves, plus SLIDE_STEPS_MINE if it ends on a mine.
+    //   Collecting items never changes it, so snapshots share it.
+    // - rayItems: gems the slide collects in the low RAY_SHIELD_SHIFT bits, shields above.
+    //   Patched when items disappear; snapshots share it until either side changes it.
+    static final int SLIDE_STEPS_MINE = 1 << 15;
+    private static final int RAY_SHIELD_SHIFT = 12;
+    static final int RAY_GEM_MASK = (1 << RAY_SHIELD_SHIFT) - 1;
+    private final char[] slideSteps;
+    private final int[] stepOffset = new int[8];  // cell index change per step, by direction
+    private char[] rayItems;
+    private boolean rayItemsShared;
+
+    // A slide crosses at most max(rows, cols) - 2 cells, all of which must fit the gem count
+    public static final int MAX_SIDE = RAY_GEM_MASK + 2;
+
+    // Per cell, bit k set if moving in Direction k is safe: without shields (slides that
+    // move and miss mines) and with shields (slides that move). Walls and mines never
+    // move and collecting items never changes where a slide ends, so both are fixed once
+    // generated and shared with snapshots; a player's shield count picks which one applies.
+    private final byte[] safeUnshielded, safeShielded;
+
+    // Dead-end bit per cell, fixed once generated and shared with snapshots
+    private final long[] deadEnds;
+
+    // Zobrist hash of the gems and shields still on the board
+    private long itemHash;
+
+    public static final int ZOBRIST_GEM      = 0;
+    public static final int ZOBRIST_SHIELD   = 1;
+    public static final int ZOBRIST_POSITION = 2;
+    public static final int ZOBRIST_SHIELDS  = 3;
+
+    // Item counters, kept live by clearItem: whole board and per tile.
+    // Tiles are the TILE_SPLITS x TILE_SPLITS leaves of a depth-3 midpoint quadtree
+    // over the board, the same split Greedy's region analysis uses.
+    public static final int TILE_SPLITS = 8;
+    private final int[] rowBand, colBand;
+    private final int[] tileGems, tileShields;
+    private final int[] tileMines, tileWalls;  // fixed once generated, shared with snapshots
+    private int gemsRemaining, shieldsRemaining;
+
+    // Greedy's region scores, built on first use and then updated only for the
+    // tiles whose items changed since (one dirty bit per tile)
+    private RegionIndex regions;
+    private long dirtyTiles;
+
+    // Gem distance field, built on first use; later gem changes are queued here and
+    // applied on the next read. Past MAX_GEM_CHANGES the field is rebuilt instead.
+    private static final int MAX_GEM_CHANGES = 64;
+    private GemDistances gemDistances;
+    private int[] gemChanges;
+    private int gemChangeCount;
+
+    // Gem races between the players, refreshed on request only; in between, the gems
+    // each player still wins under that ownership are counted as items change
+    private RaceMap raceMap;
+    private int[] raceGems = new int[2];
 
     public int humanRow, humanCol;
     public int cpuRow, cpuCol;
@@ -17,33 +85,151 @@ public class BoardModel {
     public boolean gameOver = false;
     public String gameResult = "";
 
-    private final Random rand = new Random();
+    private final Random rand;
+    private final long seed;
+    private int totalShields;
     private Difficulty currentDifficulty;
     
     // For animation callbacks
     private ShieldBreakListener shieldBreakListener;
 
+    // For partial repaints: items collected, cells a token left or entered
+    private CellChangeListener cellChangeListener;
+
+    // Undo log for apply(): per applied move, the player fields it may change, then one
+    // entry per item it collected (cell index * 2, +1 for a shield). frameStart holds
+    // where each move's entries begin; listeners stay quiet while a move is recorded.
+    private static final int UNDO_STATE = 9;
+    private int[] undoLog = new int[64];
+    private int undoTop;
+    private int[] frameStart = new int[16];
+    private String[] frameResult = new String[16];
+    private int undoDepth;
+    private boolean recording;
+
     public BoardModel(int r, int c) {
         this(r, c, Difficulty.MEDIUM);
     }
     
     public BoardModel(int r, int c, Difficulty diff) {
+        this(r, c, diff, new Random().nextLong());
+    }
+
+    // Same seed, size and difficulty always generate the same board
+    public BoardModel(int r, int c, Difficulty diff, long seed) {
+        if (Math.max(r, c) > MAX_SIDE) {
+            throw new IllegalArgumentException("Board side " + Math.max(r, c) + " exceeds " + MAX_SIDE);
+        }
         rows = r;
         cols = c;
         currentDifficulty = diff;
-        grid = new Cell[r][c];
+        this.seed = seed;
+        rand = new Random(seed);
+        cells = new byte[r * c];
+        slideSteps = new char[r * c * 8];
+        rayItems = new char[r * c * 8];
+        for (Direction d : Direction.ALL) stepOffset[d.ordinal()] = d.dx * c + d.dy;
+        rowBand = bands(r);
+        colBand = bands(c);
+        tileGems = new int[TILE_SPLITS * TILE_SPLITS];
+        tileShields = new int[TILE_SPLITS * TILE_SPLITS];
+        tileMines = new int[TILE_SPLITS * TILE_SPLITS];
+        tileWalls = new int[TILE_SPLITS * TILE_SPLITS];
+        safeUnshielded = new byte[r * c];
+        safeShielded = new byte[r * c];
+        deadEnds = new long[(r * c + 63) >>> 6];
         init();
     }
 
+    // Copy constructor for snapshot(); listeners and the undo log stay with the original
+    private BoardModel(BoardModel src) {
+        rows = src.rows;
+        cols = src.cols;
+        currentDifficulty = src.currentDifficulty;
+        rand = null;  // generation is done, snapshots never draw random numbers
+        seed = src.seed;
+        cells = src.cells.clone();
+        graph = src.graph;
+        slideSteps = src.slideSteps;
+        System.arraycopy(src.stepOffset, 0, stepOffset, 0, 8);
+        src.rayItemsShared = true;
+        rayItems = src.rayItems;
+        rayItemsShared = true;
+        safeUnshielded = src.safeUnshielded;
+        safeShielded = src.safeShielded;
+        deadEnds = src.deadEnds;
+        itemHash = src.itemHash;
+        rowBand = src.rowBand;
+        colBand = src.colBand;
+        tileGems = src.tileGems.clone();
+        tileShields = src.tileShields.clone();
+        tileMines = src.tileMines;
+        tileWalls = src.tileWalls;
+        gemsRemaining = src.gemsRemaining;
+        shieldsRemaining = src.shieldsRemaining;
+        if (src.regions != null) {
+            src.regions.shared = true;
+            regions = src.regions;
+            dirtyTiles = src.dirtyTiles;
+        }
+        if (src.gemDistances != null) {
+            src.gemDistances.shared = true;
+            gemDistances = src.gemDistances;
+            gemChanges = src.gemChanges.clone();
+            gemChangeCount = src.gemChangeCount;
+        }
+        if (src.raceMap != null) {
+            src.raceMap.shared = true;
+            raceMap = src.raceMap;
+            raceGems = src.raceGems.clone();
+        }
+        totalShields = src.totalShields;
+        humanRow = src.humanRow;
+        humanCol = src.humanCol;
+        cpuRow = src.cpuRow;
+        cpuCol = src.cpuCol;
+        humanScore = src.humanScore;
+        cpuScore = src.cpuScore;
+        humanShields = src.humanShields;
+        cpuShields = src.cpuShields;
+        gameOver = src.gameOver;
+        gameResult = src.gameResult;
+    }
+
+    // Independent copy of the current game state, safe to hand to another thread
+    public BoardModel snapshot() {
+        return new BoardModel(this);
+    }
+
+    // Snapshot with the human and CPU swapped, so a CPU search can play the human's side
+    public BoardModel mirrored() {
+        BoardModel m = new BoardModel(this);
+        m.humanRow = cpuRow;
+        m.humanCol = cpuCol;
+        m.cpuRow = humanRow;
+        m.cpuCol = humanCol;
+        m.humanScore = cpuScore;
+        m.cpuScore = humanScore;
+        m.humanShields = cpuShields;
+        m.cpuShields = humanShields;
+        m.raceMap = null;  // owners would be swapped
+        return m;
+    }
+
+    // Seed the board was generated from; pass it back to the constructor to rebuild it
+    public long seed() { return seed; }
+
+    public Difficulty difficulty() { return currentDifficulty; }
+
     public void setShieldBreakListener(ShieldBreakListener listener) {
         this.shieldBreakListener = listener;
     }
 
-    private void init() {
-        for (int r = 0; r < rows; r++)
-            for (int c = 0; c < cols; c++)
-                grid[r][c] = new Cell();
+    public void setCellChangeListener(CellChangeListener listener) {
+        this.cellChangeListener = listener;
+    }
 
+    private void init() {
         humanRow = 1;
         humanCol = 1;
         cpuRow = rows - 2;
@@ -52,27 +238,28 @@ public class BoardModel {
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < cols; c++) {
                 if (r == 0 || c == 0 || r == rows - 1 || c == cols - 1) {
-                    grid[r][c].wall = true;
+                    set(r, c, Cell.WALL);
                 }
             }
         }
 
-        int maxShieldsOnBoard = (currentDifficulty == Difficulty.HARD) ? 4 : 2;
+        int maxShieldsOnBoard = (currentDifficulty == Difficulty.HARD ||
+                                 currentDifficulty == Difficulty.EXPERT) ? 4 : 2;
         int shieldCount = 0;
         
         for (int r = 1; r < rows - 1; r++) {
             for (int c = 1; c < cols - 1; c++) {
                 if ((Math.abs(r - humanRow) <= 1 && Math.abs(c - humanCol) <= 1) ||
                     (Math.abs(r - cpuRow) <= 1 && Math.abs(c - cpuCol) <= 1)) continue;
-                if (grid[r][c].wall) continue;
+                if (isWall(r, c)) continue;
                 
                 int v = rand.nextInt(100);
-                if (v < 12) grid[r][c].wall = true;
-                else if (v < 30) grid[r][c].gem = true;
-                else if (v < 42) grid[r][c].stop = true;
-                else if (v < 48) grid[r][c].mine = true;
+                if (v < 12) set(r, c, Cell.WALL);
+                else if (v < 30) set(r, c, Cell.GEM);
+                else if (v < 42) set(r, c, Cell.STOP);
+                else if (v < 48) set(r, c, Cell.MINE);
                 else if (v < 52 && shieldCount < maxShieldsOnBoard) {
-                    grid[r][c].shield = true;
+                    set(r, c, Cell.SHIELD);
                     shieldCount++;
                 }
             }
@@ -81,93 +268,381 @@ public class BoardModel {
         while (shieldCount < maxShieldsOnBoard) {
             int r = 1 + rand.nextInt(rows - 2);
             int c = 1 + rand.nextInt(cols - 2);
-            if (!grid[r][c].wall && !grid[r][c].gem && !grid[r][c].stop && 
-                !grid[r][c].mine && !grid[r][c].shield) {
-                grid[r][c].shield = true;
+            if (cellFlags(r, c) == 0) {
+                set(r, c, Cell.SHIELD);
                 shieldCount++;
             }
         }
+        totalShields = shieldCount;
+        buildSlideTable();
+        buildStaticMaps();
+        graph = new SlideGraph(slideSteps, stepOffset, safeShielded, rayItems);
         pruneUnreachableGems();
+
+        // Pruning cleared items through clearItem, so start the hash and counters over
+        itemHash = 0;
+        gemsRemaining = shieldsRemaining = 0;
+        Arrays.fill(tileGems, 0);
+        Arrays.fill(tileShields, 0);
+        for (int i = 0; i < cells.length; i++) {
+            int f = cells[i];
+            int tile = tileAt(i / cols, i % cols);
+            if ((f & Cell.GEM) != 0) {
+                itemHash ^= zobrist(ZOBRIST_GEM, i);
+                gemsRemaining++;
+                tileGems[tile]++;
+            }
+            if ((f & Cell.SHIELD) != 0) {
+                itemHash ^= zobrist(ZOBRIST_SHIELD, i);
+                shieldsRemaining++;
+                tileShields[tile]++;
+            }
+            if ((f & Cell.MINE) != 0) tileMines[tile]++;
+            if ((f & Cell.WALL) != 0) tileWalls[tile]++;
+        }
     }
 
-    private void pruneUnreachableGems() {
-        boolean[][] visited = new boolean[rows][cols];
-        Queue<Point> queue = new LinkedList<>();
+    // Safe directions and dead ends; they depend only on walls, mines and slide destinations
+    private void buildStaticMaps() {
+        for (int i = 0; i < cells.length; i++) {
+            for (int k = 0; k < 8; k++) {
+                int steps = slideSteps[(i << 3) + k];
+                if (steps == 0) continue;
+                safeShielded[i] |= 1 << k;
+                if (steps < SLIDE_STEPS_MINE) safeUnshielded[i] |= 1 << k;
+            }
+            if ((cells[i] & Cell.WALL) == 0 && surroundedOnSix(i / cols, i % cols)) {
+                deadEnds[i >>> 6] |= 1L << i;
+            }
+        }
+    }
 
-        queue.add(new Point(humanRow, humanCol));
-        visited[humanRow][humanCol] = true;
+    // Walls, mines or the board edge on six or more sides
+    private boolean surroundedOnSix(int r, int c) {
+        int blocked = 0;
+        for (Direction d : Direction.ALL) {
+            int nr = r + d.dx;
+            int nc = c + d.dy;
+            if (!inBounds(nr, nc) || (cellFlags(nr, nc) & (Cell.WALL | Cell.MINE)) != 0) {
+                blocked++;
+            }
+        }
+        return blocked >= 6;
+    }
 
-        boolean[][] gemReachable = new boolean[rows][cols];
+    // Band of every row (or column): three rounds of midpoint splits give TILE_SPLITS bands
+    private static int[] bands(int n) {
+        int[] band = new int[n];
+        splitBands(band, 0, n, 0, 3);
+        return band;
+    }
 
-        while (!queue.isEmpty()) {
-            Point p = queue.poll();
-            for (Direction d : Direction.values()) {
-                SlideResult res = slide(p.r, p.c, d, false);
-                if (res.hitMine) continue;
-                if (!visited[res.r][res.c]) {
-                    visited[res.r][res.c] = true;
-                    queue.add(new Point(res.r, res.c));
-                }
-                markPathGems(p.r, p.c, d, gemReachable);
-            }
+    private static void splitBands(int[] band, int start, int end, int id, int depth) {
+        if (depth == 0) {
+            Arrays.fill(band, start, end, id);
+            return;
         }
+        int mid = (start + end) / 2;
+        splitBands(band, start, mid, id * 2, depth - 1);
+        splitBands(band, mid, end, id * 2 + 1, depth - 1);
+    }
 
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                if (grid[r][c].gem && !gemReachable[r][c]) grid[r][c].gem = false;
+    // Package-private for AiBenchmark; idempotent once the board is generated
+    void pruneUnreachableGems() {
+        int n = rows * cols;
+        boolean[] gemReachable = new boolean[n];
+        byte[] walked = new byte[n];
+
+        // BFS over the slide graph's safe edges
+        SlideGraph.Bfs bfs = SlideGraph.bfs(n);
+        bfs.offer(index(humanRow, humanCol), 0);
+        while (!bfs.isEmpty()) {
+            int p = bfs.poll();
+            for (int ks = graph.moves(p); ks != 0; ks &= ks - 1) {
+                int e = graph.edge(p, Integer.numberOfTrailingZeros(ks));
+                if (SlideGraph.edgeHitsMine(e)) continue;
+                int dest = SlideGraph.edgeCell(e);
+                bfs.offer(dest, 0);
+                if (SlideGraph.edgeMayCrossGems(e)) {
+                    markPathGems(p, dest, SlideGraph.edgeDirection(e), walked, gemReachable);
+                }
             }
         }
-    }
 
-    private void markPathGems(int r, int c, Direction d, boolean[][] gemReachable) {
-        while (true) {
-            r += d.dx;
-            c += d.dy;
-            if (!inBounds(r, c) || grid[r][c].wall) break;
-            if (grid[r][c].gem) gemReachable[r][c] = true;
-            if (grid[r][c].stop || grid[r][c].mine) break;
+        for (int i = 0; i < n; i++) {
+            if ((cells[i] & Cell.GEM) != 0 && !gemReachable[i]) clearItem(i, Cell.GEM);
         }
     }
 
-    private static class Point {
-        int r, c;
-        Point(int r, int c) { this.r = r; this.c = c; }
+    // Every slide through a cell in one direction ends in the same place, so a walk
+    // can stop at the first cell an earlier walk in that direction (walked bit k) passed
+    private void markPathGems(int from, int dest, int k, byte[] walked, boolean[] gemReachable) {
+        Direction d = Direction.ALL[k];
+        int step = d.dx * cols + d.dy;
+        for (int i = from; i != dest; ) {
+            i += step;
+            if ((walked[i] & (1 << k)) != 0) break;
+            walked[i] |= 1 << k;
+            if ((cells[i] & Cell.GEM) != 0) gemReachable[i] = true;
+        }
     }
 
     public boolean inBounds(int r, int c) {
         return r >= 0 && r < rows && c >= 0 && c < cols;
     }
 
-    public SlideResult slide(int sr, int sc, Direction d, boolean mutate) {
-        int r = sr, c = sc;
-        int gems = 0;
-        int shields = 0;
+    /******************************************************************
+     * Cell accessors - all reads of the packed board go through these
+     ******************************************************************/
+    public int index(int r, int c) { return r * cols + c; }
 
-        while (true) {
-            int nr = r + d.dx;
-            int nc = c + d.dy;
+    public int cellFlags(int r, int c) { return cells[r * cols + c]; }
+
+    // Same flags by cell index
+    int flagsAt(int cell) { return cells[cell]; }
+
+    public boolean isWall(int r, int c)    { return (cells[r * cols + c] & Cell.WALL) != 0; }
+    public boolean isStop(int r, int c)    { return (cells[r * cols + c] & Cell.STOP) != 0; }
+    public boolean isMine(int r, int c)    { return (cells[r * cols + c] & Cell.MINE) != 0; }
+    public boolean hasGem(int r, int c)    { return (cells[r * cols + c] & Cell.GEM) != 0; }
+    public boolean hasShield(int r, int c) { return (cells[r * cols + c] & Cell.SHIELD) != 0; }
+
+    // Non-wall cell with walls, mines or the board edge on six or more sides
+    public boolean isDeadEnd(int r, int c) {
+        int i = r * cols + c;
+        return (deadEnds[i >>> 6] & 1L << i) != 0;
+    }
 
-            if (!inBounds(nr, nc)) break;
-            if (grid[nr][nc].wall) break;
+    // Bit k set if a player holding this many shields may move in Direction k from (r, c)
+    public int safeDirections(int r, int c, int shields) {
+        return (shields > 0 ? safeShielded : safeUnshielded)[r * cols + c] & 0xFF;
+    }
 
-            r = nr;
-            c = nc;
+    private void set(int r, int c, byte flag) { cells[r * cols + c] |= flag; }
+
+    // Removes a gem or shield and patches every slide ray that crossed it
+    private void clearItem(int idx, byte flag) {
+        if ((cells[idx] & flag) == 0) return;
+        cells[idx] &= ~flag;
+        updateItem(idx, flag, -1);
+        if (recording) {
+            pushUndo(idx * 2 + (flag == Cell.SHIELD ? 1 : 0));
+        } else if (cellChangeListener != null) {
+            cellChangeListener.onCellChanged(idx / cols, idx % cols);
+        }
+    }
 
-            if (grid[r][c].mine) return new SlideResult(r, c, gems, shields, true);
+    // Puts back an item cleared while recording
+    private void restoreItem(int idx, byte flag) {
+        cells[idx] |= flag;
+        updateItem(idx, flag, 1);
+    }
 
-            if (grid[r][c].gem) {
-                gems++;
-                if (mutate) grid[r][c].gem = false;
+    // Slide rays, hash and counters for an item added (sign 1) or removed (sign -1)
+    private void updateItem(int idx, byte flag, int sign) {
+        boolean gem = flag == Cell.GEM;
+        patchRaysThrough(idx, sign * (gem ? 1 : 1 << RAY_SHIELD_SHIFT));
+        itemHash ^= zobrist(gem ? ZOBRIST_GEM : ZOBRIST_SHIELD, idx);
+
+        int tile = tileAt(idx / cols, idx % cols);
+        dirtyTiles |= 1L << tile;
+        if (gem && gemDistances != null && gemChangeCount <= MAX_GEM_CHANGES) {
+            if (gemChangeCount < MAX_GEM_CHANGES) gemChanges[gemChangeCount] = idx;
+            gemChangeCount++;
+        }
+        if (gem && raceMap != null) {
+            int owner = raceMap.owner(idx);
+            if (owner != RaceMap.NONE) raceGems[owner] += sign;
+        }
+        if (gem) {
+            gemsRemaining += sign;
+            tileGems[tile] += sign;
+        } else {
+            shieldsRemaining += sign;
+            tileShields[tile] += sign;
+        }
+    }
+
+    public long itemHash() { return itemHash; }
+
+    public int gemsRemaining()    { return gemsRemaining; }
+    public int shieldsRemaining() { return shieldsRemaining; }
+
+    // Tile of a cell, 0 .. TILE_SPLITS^2 - 1 in row-major order
+    public int tileAt(int r, int c) { return rowBand[r] * TILE_SPLITS + colBand[c]; }
+
+    public int tileGems(int tile)    { return tileGems[tile]; }
+    public int tileShields(int tile) { return tileShields[tile]; }
+    public int tileMines(int tile)   { return tileMines[tile]; }
+    public int tileWalls(int tile)   { return tileWalls[tile]; }
+
+    // Region scores for the current items; a shared index is copied before it is updated
+    public RegionIndex regions() {
+        if (regions == null) {
+            regions = new RegionIndex(this);
+        } else if (dirtyTiles != 0) {
+            if (regions.shared) regions = regions.copy();
+            regions.update(this, dirtyTiles);
+        }
+        dirtyTiles = 0;
+        return regions;
+    }
+
+    // Slides from a cell to the nearest gem collection, see GemDistances
+    public GemDistances gemDistances() {
+        if (gemDistances == null || gemChangeCount > MAX_GEM_CHANGES) {
+            gemDistances = new GemDistances(this);
+            if (gemChanges == null) gemChanges = new int[MAX_GEM_CHANGES];
+        } else if (gemChangeCount > 0) {
+            if (gemDistances.shared) gemDistances = gemDistances.copy();
+            gemDistances.update(this, gemChanges, gemChangeCount);
+        }
+        gemChangeCount = 0;
+        return gemDistances;
+    }
+
+    // Which player reaches each gem first, see RaceMap; only a side that moved is searched again
+    public RaceMap raceMap(boolean humanToMove) {
+        if (raceMap == null) {
+            raceMap = new RaceMap(this);
+        } else if (raceMap.isCurrent(this, humanToMove)) {
+            return raceMap;
+        } else if (raceMap.shared) {
+            raceMap = raceMap.copy();
+        }
+        raceMap.refresh(this, humanToMove);
+        raceMap.countGems(this, raceGems);
+        return raceMap;
+    }
+
+    // Gems left that the player wins the race to, as of the last raceMap() call.
+    // O(1): collecting or undoing a gem adjusts the count of its owner.
+    public int raceGemsWon(int player) {
+        return raceMap == null ? 0 : raceGems[player];
+    }
+
+    // Shields placed at generation: no player can ever hold more than this
+    public int totalShields() { return totalShields; }
+
+    // Zobrist key for a (feature kind, value) pair; a stateless SplitMix64 mix, so no key tables
+    public static long zobrist(int kind, int value) {
+        long z = ((long) kind << 32 | (value & 0xFFFFFFFFL)) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /******************************************************************
+     * Slide table - built once per board, patched when items disappear
+     ******************************************************************/
+    private void buildSlideTable() {
+        for (Direction d : Direction.ALL) {
+            // Visit cells so that (r + dx, c + dy) is always filled in first
+            int rFrom = d.dx > 0 ? rows - 1 : 0, rStep = d.dx > 0 ? -1 : 1;
+            int cFrom = d.dy > 0 ? cols - 1 : 0, cStep = d.dy > 0 ? -1 : 1;
+            for (int i = 0, r = rFrom; i < rows; i++, r += rStep) {
+                for (int j = 0, c = cFrom; j < cols; j++, c += cStep) {
+                    computeSlideEntry(r, c, d);
+                }
             }
+        }
+    }
+
+    // Both arrays start out zero: a slide that goes nowhere needs no entry
+    private void computeSlideEntry(int r, int c, Direction d) {
+        int nr = r + d.dx;
+        int nc = c + d.dy;
+        if (!inBounds(nr, nc) || isWall(nr, nc)) return;
+
+        int i = ((r * cols + c) << 3) + d.ordinal();
+        int next = nr * cols + nc;
+        int f = cells[next];
+        if ((f & Cell.MINE) != 0) {
+            slideSteps[i] = 1 | SLIDE_STEPS_MINE;
+            return;
+        }
+
+        int items = 0;
+        if ((f & Cell.GEM) != 0) items += 1;
+        if ((f & Cell.SHIELD) != 0) items += 1 << RAY_SHIELD_SHIFT;
+        if ((f & Cell.STOP) != 0) {
+            slideSteps[i] = 1;
+            rayItems[i] = (char) items;
+            return;
+        }
+
+        // Keep sliding: one step more than the neighbour (mine bit included), plus this cell's items
+        int j = (next << 3) + d.ordinal();
+        slideSteps[i] = (char) (slideSteps[j] + 1);
+        rayItems[i] = (char) (rayItems[j] + items);
+    }
 
-            if (grid[r][c].shield) {
-                shields++;
-                if (mutate) grid[r][c].shield = false;
+    // Walks backwards from idx along each direction, adjusting every start cell whose ray passes idx
+    private void patchRaysThrough(int idx, int delta) {
+        if (rayItemsShared) {
+            rayItems = rayItems.clone();
+            rayItemsShared = false;
+        }
+        int tr = idx / cols, tc = idx % cols;
+        for (Direction d : Direction.ALL) {
+            int k = d.ordinal();
+            int r = tr - d.dx, c = tc - d.dy;
+            while (inBounds(r, c)) {
+                int f = cells[r * cols + c];
+                if ((f & Cell.WALL) != 0) break;
+                rayItems[((r * cols + c) << 3) + k] += delta;
+                if ((f & (Cell.STOP | Cell.MINE)) != 0) break;
+                r -= d.dx;
+                c -= d.dy;
             }
+        }
+    }
+
+    public SlideGraph slideGraph() { return graph; }
+
+    /******************************************************************
+     * Allocation-free slide query for the AI: returns the packed table
+     * entry, read back with slideRow/slideCol/slideGems/...
+     ******************************************************************/
+    public long slidePacked(int r, int c, Direction d) {
+        return slideAt(r * cols + c, d.ordinal());
+    }
+
+    // Same entry by cell index and Direction ordinal
+    long slideAt(int cell, int k) {
+        int i = (cell << 3) + k;
+        int steps = slideSteps[i];
+        long items = rayItems[i];
+        long packed = (cell + (steps & ~SLIDE_STEPS_MINE) * stepOffset[k])
+                    | (items & RAY_GEM_MASK) << 32 | (items >>> RAY_SHIELD_SHIFT) << 48;
+        return steps >= SLIDE_STEPS_MINE ? packed | SLIDE_MINE : packed;
+    }
+
+    public int slideRow(long e) { return slideCell(e) / cols; }
+    public int slideCol(long e) { return slideCell(e) % cols; }
+
+    public static int slideCell(long e)        { return (int) (e & SLIDE_DEST_MASK); }
+    public static int slideGems(long e)        { return (int) ((e >>> 32) & 0xFFFF); }
+    public static int slideShields(long e)     { return (int) ((e >>> 48) & 0x7FFF); }
+    public static boolean slideHitMine(long e) { return e < 0; }
 
-            if (grid[r][c].stop) break;
+    public SlideResult slide(int sr, int sc, Direction d, boolean mutate) {
+        long e = slidePacked(sr, sc, d);
+        int dest = slideCell(e);
+        int gems = slideGems(e);
+        int shields = slideShields(e);
+
+        if (mutate && (gems | shields) != 0) {
+            // Collect everything along the ray; each removal patches the table
+            int idx = sr * cols + sc;
+            int step = d.dx * cols + d.dy;
+            do {
+                idx += step;
+                clearItem(idx, Cell.GEM);
+                clearItem(idx, Cell.SHIELD);
+            } while (idx != dest);
         }
-        return new SlideResult(r, c, gems, shields, false);
+        return new SlideResult(dest / cols, dest % cols, gems, shields, slideHitMine(e));
     }
 
     public void move(boolean human, Direction d) {
@@ -201,7 +676,7 @@ public class BoardModel {
                 }
                 
                 // Trigger animation
-                if (shieldBreakListener != null) {
+                if (shieldBreakListener != null && !recording) {
                     shieldBreakListener.onShieldBreak(res.r, res.c);
                 }
             } else {
@@ -217,26 +692,83 @@ public class BoardModel {
                 cpuCol = res.c;
             }
         }
+
+        // Tokens and their shield counts are drawn on these two cells
+        if (cellChangeListener != null && !recording) {
+            cellChangeListener.onCellChanged(sr, sc);
+            cellChangeListener.onCellChanged(res.r, res.c);
+        }
     }
 
-    private boolean anyGemLeft() {
-        for (int r = 0; r < rows; r++)
-            for (int c = 0; c < cols; c++)
-                if (grid[r][c].gem) return true;
-        return false;
+    /******************************************************************
+     * Make/unmake for search: apply() plays a move in place and logs
+     * what it changed, undo() takes back the latest applied move
+     ******************************************************************/
+
+    // Plays d (null for a pass) for one side as move() does, without notifying listeners.
+    // gameOver and gameResult are restored by undo() too, so callers may checkEndGame().
+    public void apply(boolean human, Direction d) {
+        if (undoDepth == frameStart.length) {
+            frameStart = Arrays.copyOf(frameStart, undoDepth * 2);
+            frameResult = Arrays.copyOf(frameResult, undoDepth * 2);
+        }
+        frameStart[undoDepth] = undoTop;
+        frameResult[undoDepth++] = gameResult;
+        pushUndo(humanRow);
+        pushUndo(humanCol);
+        pushUndo(cpuRow);
+        pushUndo(cpuCol);
+        pushUndo(humanScore);
+        pushUndo(cpuScore);
+        pushUndo(humanShields);
+        pushUndo(cpuShields);
+        pushUndo(gameOver ? 1 : 0);
+
+        if (d == null) return;
+        recording = true;
+        try {
+            move(human, d);
+        } finally {
+            recording = false;
+        }
     }
 
-    public boolean hasAnySafeMove(int r, int c, int shields) {
-        for (Direction d : Direction.values()) {
-            SlideResult sim = slide(r, c, d, false);
-            boolean survivable = !sim.hitMine || (shields > 0);
-            if (survivable && (sim.r != r || sim.c != c)) return true;
+    public void undo() {
+        if (undoDepth == 0) throw new IllegalStateException("Nothing to undo");
+        int start = frameStart[--undoDepth];
+        while (undoTop > start + UNDO_STATE) {
+            int entry = undoLog[--undoTop];
+            restoreItem(entry >> 1, (entry & 1) != 0 ? Cell.SHIELD : Cell.GEM);
         }
-        return false;
+        int[] log = undoLog;
+        humanRow = log[start];
+        humanCol = log[start + 1];
+        cpuRow = log[start + 2];
+        cpuCol = log[start + 3];
+        humanScore = log[start + 4];
+        cpuScore = log[start + 5];
+        humanShields = log[start + 6];
+        cpuShields = log[start + 7];
+        gameOver = log[start + 8] != 0;
+        gameResult = frameResult[undoDepth];
+        frameResult[undoDepth] = null;
+        undoTop = start;
+    }
+
+    // Applied moves not yet undone
+    public int undoDepth() { return undoDepth; }
+
+    private void pushUndo(int v) {
+        if (undoTop == undoLog.length) undoLog = Arrays.copyOf(undoLog, undoTop * 2);
+        undoLog[undoTop++] = v;
+    }
+
+    public boolean hasAnySafeMove(int r, int c, int shields) {
+        return safeDirections(r, c, shields) != 0;
     }
 
     public void checkEndGame() {
-        if (!anyGemLeft()) {
+        if (gemsRemaining == 0) {
             gameOver = true;
             if (humanScore > cpuScore) gameResult = "All gems collected. Human wins!";
             else if (cpuScore > humanScore) gameResult = "All gems collected. CPU wins!";
@@ -266,4 +798,8 @@ public class BoardModel {
     public interface ShieldBreakListener {
         void onShieldBreak(int row, int col);
     }
+
+    public interface CellChangeListener {
+        void onCellChanged(int row, int col);
+    }
 }
\ No newline at end of file
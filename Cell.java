@@ -1,11 +1,10 @@
-public class Cell {
-    boolean wall;
-    boolean stop;
-    boolean mine;
-    boolean gem;
-    boolean shield;
+// Bit layout of a packed board cell (see BoardModel.cells)
+public final class Cell {
+    public static final byte WALL   = 1;
+    public static final byte STOP   = 1 << 1;
+    public static final byte MINE   = 1 << 2;
+    public static final byte GEM    = 1 << 3;
+    public static final byte SHIELD = 1 << 4;
 
-    public Cell() {
-        wall = stop = mine = gem = shield = false;
-    }
-}
\ No newline at end of file
+    private Cell() {}
+}
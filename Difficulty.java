@@ -1,5 +1,6 @@
 public enum Difficulty {
     EASY,
     MEDIUM,
-    HARD
+    HARD,
+    EXPERT  // two-player alpha-beta search, see AlphaBetaEngine
 }
\ No newline at end of file
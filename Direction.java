@@ -4,6 +4,9 @@ public enum Direction {
 
     public final int dx, dy;
 
+    // Shared copy of values() for hot loops; values() clones on every call. Do not modify.
+    public static final Direction[] ALL = values();
+
     Direction(int dx, int dy) {
         this.dx = dx;
         this.dy = dy;
@@ -13,7 +16,7 @@ public enum Direction {
         int dx = Integer.compare(tr - sr, 0);
         int dy = Integer.compare(tc - sc, 0);
         if (dx == 0 && dy == 0) return null;
-        for (Direction d : values())
+        for (Direction d : ALL)
             if (d.dx == dx && d.dy == dy) return d;
         return null;
     }
@@ -0,0 +1,198 @@
+import java.util.Arrays;
+
+// Fewest slides from each cell to collecting a gem: a multi-source BFS over the reverse
+// slide graph, starting from every cell that has a gem-collecting slide (distance 1).
+// Two fields: without shields slides onto mines are never taken, with shields they are
+// (a path may then cross more mines than the player holds shields). When gems are
+// collected or put back, only the cells whose distance changes are visited again.
+public class GemDistances {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int SAFE = 0, SHIELDED = 1;
+
+    private final SlideGraph graph;
+    private final int[][] dist;        // per field, per cell
+    private final boolean[][] source;  // per field: the cell has a gem-collecting slide
+
+    // Set once a snapshot shares this field; shared fields are copied before updating
+    boolean shared;
+
+    GemDistances(BoardModel m) {
+        graph = m.slideGraph();
+        graph.buildReverse();
+        int n = m.rows * m.cols;
+        dist = new int[2][n];
+        source = new boolean[2][n];
+        for (int f = SAFE; f <= SHIELDED; f++) {
+            Arrays.fill(dist[f], UNREACHABLE);
+            SlideGraph.Bfs bfs = SlideGraph.bfs(n);
+            for (int p = 0; p < n; p++) {
+                if (isSource(m, f, p)) {
+                    source[f][p] = true;
+                    dist[f][p] = 1;
+                    bfs.offer(p, 0);
+                }
+            }
+            relax(f, bfs);
+        }
+    }
+
+    private GemDistances(GemDistances src) {
+        graph = src.graph;
+        graph.buildReverse();
+        dist = new int[][]{src.dist[SAFE].clone(), src.dist[SHIELDED].clone()};
+        source = new boolean[][]{src.source[SAFE].clone(), src.source[SHIELDED].clone()};
+    }
+
+    GemDistances copy() {
+        return new GemDistances(this);
+    }
+
+    // Slides to the nearest gem for a player on cell holding the given shields
+    public int distance(int cell, int shields) {
+        return dist[shields > 0 ? SHIELDED : SAFE][cell];
+    }
+
+    // Catches up after the gems on the given cells were collected or put back
+    void update(BoardModel m, int[] changed, int count) {
+        int[] lost = new int[16], gained = new int[16];
+        for (int f = SAFE; f <= SHIELDED; f++) {
+            // Only cells whose slides cross a changed cell can start or stop being sources
+            int lostCount = 0, gainedCount = 0;
+            for (int j = 0; j < count; j++) {
+                int g = changed[j];
+                for (Direction d : Direction.ALL) {
+                    int r = g / m.cols - d.dx, c = g % m.cols - d.dy;
+                    while (m.inBounds(r, c)) {
+                        int flags = m.cellFlags(r, c);
+                        if ((flags & Cell.WALL) != 0) break;
+                        int p = m.index(r, c);
+                        boolean now = isSource(m, f, p);
+                        if (now != source[f][p]) {
+                            source[f][p] = now;
+                            if (now) {
+                                if (gainedCount == gained.length) gained = Arrays.copyOf(gained, gainedCount * 2);
+                                gained[gainedCount++] = p;
+                            } else {
+                                if (lostCount == lost.length) lost = Arrays.copyOf(lost, lostCount * 2);
+                                lost[lostCount++] = p;
+                            }
+                        }
+                        if ((flags & (Cell.STOP | Cell.MINE)) != 0) break;
+                        r -= d.dx;
+                        c -= d.dy;
+                    }
+                }
+            }
+            if (lostCount > 0) removeSources(f, lost, lostCount);
+            if (gainedCount > 0) {
+                SlideGraph.Bfs bfs = SlideGraph.bfs(dist[f].length);
+                for (int j = 0; j < gainedCount; j++) {
+                    dist[f][gained[j]] = 1;
+                    bfs.offer(gained[j], 0);
+                }
+                relax(f, bfs);
+            }
+        }
+    }
+
+    private boolean isSource(BoardModel m, int f, int p) {
+        for (int ks = graph.moves(p); ks != 0; ks &= ks - 1) {
+            int e = graph.edge(p, Integer.numberOfTrailingZeros(ks));
+            if (allowed(f, e) && SlideGraph.edgeMayCrossGems(e)
+                    && BoardModel.slideGems(m.slideAt(p, SlideGraph.edgeDirection(e))) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean allowed(int f, int edge) {
+        return f == SHIELDED || !SlideGraph.edgeHitsMine(edge);
+    }
+
+    // BFS outwards from the queued cells, lowering the distance of every cell that can
+    // slide into one of them. Queued cells must already hold their final distance.
+    private void relax(int f, SlideGraph.Bfs bfs) {
+        int[] d = dist[f];
+        while (!bfs.isEmpty()) {
+            int x = bfs.poll();
+            for (int i = graph.firstReverseEdge(x), end = graph.endReverseEdge(x); i < end; i++) {
+                int e = graph.reverseEdge(i);
+                if (!allowed(f, e)) continue;
+                int q = e < 0 ? ~e : e;
+                if (d[q] > d[x] + 1) {
+                    d[q] = d[x] + 1;
+                    bfs.offer(q, 0);
+                }
+            }
+        }
+    }
+
+    // Cells whose every shortest path ran through a lost source are found first, in
+    // order of distance; they are then given new distances from the cells around
+    // them, nearest first, like Dijkstra with unit weights.
+    private void removeSources(int f, int[] lost, int lostCount) {
+        int[] d = dist[f];
+        boolean[] src = source[f];
+        SlideGraph.Bfs affected = SlideGraph.bfs(d.length);
+        for (int j = 0; j < lostCount; j++) affected.offer(lost[j], 0);
+        while (!affected.isEmpty()) {
+            int x = affected.poll();
+            for (int i = graph.firstReverseEdge(x), end = graph.endReverseEdge(x); i < end; i++) {
+                int e = graph.reverseEdge(i);
+                if (!allowed(f, e)) continue;
+                int q = e < 0 ? ~e : e;
+                if (src[q] || affected.visited(q) || d[q] != d[x] + 1) continue;
+                if (bestUnaffected(f, q, affected) != d[q] - 1) affected.offer(q, 0);
+            }
+        }
+
+        // Distances through unaffected neighbours, sorted; improvements go to a FIFO queue
+        int count = affected.count();
+        long[] seeds = new long[count];
+        int seedCount = 0;
+        for (int j = 0; j < count; j++) {
+            int x = affected.cell(j);
+            int best = bestUnaffected(f, x, affected);
+            d[x] = best == UNREACHABLE ? UNREACHABLE : best + 1;
+            if (best != UNREACHABLE) seeds[seedCount++] = (long) d[x] << 32 | x;
+        }
+        Arrays.sort(seeds, 0, seedCount);
+
+        int[] fifo = new int[count];
+        int head = 0, tail = 0, next = 0;
+        while (next < seedCount || head < tail) {
+            int x;
+            if (head == tail || (next < seedCount && (int) (seeds[next] >>> 32) <= d[fifo[head]])) {
+                long seed = seeds[next++];
+                x = (int) seed;
+                if (d[x] != (int) (seed >>> 32)) continue;  // improved since, and queued
+            } else {
+                x = fifo[head++];
+            }
+            for (int i = graph.firstReverseEdge(x), end = graph.endReverseEdge(x); i < end; i++) {
+                int e = graph.reverseEdge(i);
+                if (!allowed(f, e)) continue;
+                int q = e < 0 ? ~e : e;
+                if (affected.visited(q) && d[q] > d[x] + 1) {
+                    d[q] = d[x] + 1;
+                    fifo[tail++] = q;
+                }
+            }
+        }
+    }
+
+    // Lowest distance among the cell's successors outside the affected set
+    private int bestUnaffected(int f, int p, SlideGraph.Bfs affected) {
+        int best = UNREACHABLE;
+        for (int ks = graph.moves(p); ks != 0; ks &= ks - 1) {
+            int e = graph.edge(p, Integer.numberOfTrailingZeros(ks));
+            if (!allowed(f, e)) continue;
+            int y = SlideGraph.edgeCell(e);
+            if (!affected.visited(y)) best = Math.min(best, dist[f][y]);
+        }
+        return best;
+    }
+}
@@ -1,116 +1,102 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class Greedy {
 
-    private static final int HARD_DEPTH = 4;
+    // Iterative deepening limits: searches deepen until the budget runs out or these caps
+    private static final int MEDIUM_MIN_DEPTH = 4;
+    private static final int MEDIUM_MAX_DEPTH = 10;
+    private static final int HARD_MAX_DEPTH = 16;
+    private static final long MEDIUM_BUDGET_MS = 40;
+    private static final long HARD_BUDGET_MS = 120;
+    private static final long EXPERT_BUDGET_MS = 150;
+    private static final double FUTURE_DISCOUNT = 0.9;
+
+    // Largest values evaluateMove/evaluatePosition can add on top of item gains (for bounds)
+    private static final int MAX_REGION_BONUS = 30;
+    private static final int GEM_PULL = 40;  // divided by the slides to the nearest gem
+    private static final int MAX_POSITION_SCORE = 8 * 50 + MAX_REGION_BONUS + GEM_PULL;
+
+    // Direction groups of MEDIUM's D&C split as move masks, in a fixed order (north,
+    // west, south, east) that the search relies on to break ties between equal results
+    private static final int[] DIRECTION_GROUPS = {
+        groupMask("NORTH"), groupMask("WEST"), groupMask("SOUTH"), groupMask("EAST")
+    };
+    private static final long NO_RESULT = -1;
+    
+    // HARD: value of a move that repeats a state on the path, and "no move"
+    private static final double NO_LINE = Double.NEGATIVE_INFINITY;
+    private static final int NO_MOVE = -1;
+    
+    // Workers for the HARD root split; -Dinertia.searchThreads=1 turns the split off
+    private static final ForkJoinPool SEARCH_POOL = new ForkJoinPool(
+        Integer.getInteger("inertia.searchThreads", Runtime.getRuntime().availableProcessors()));
+
+    // HARD's tables, owned by the deciding thread and reset per decision, see HardTables
+    private static final ThreadLocal<HardTables> HARD_TABLES = ThreadLocal.withInitial(HardTables::new);
 
     public static Direction choose(BoardModel m, Difficulty level) {
+        return decide(m, level, defaultBudgetMillis(level)).direction;
+    }
+
+    public static long defaultBudgetMillis(Difficulty level) {
+        switch (level) {
+            case HARD:   return HARD_BUDGET_MS;
+            case EXPERT: return EXPERT_BUDGET_MS;
+            default:     return MEDIUM_BUDGET_MS;
+        }
+    }
+
+    // Brings the model's caches for this level up to date, so a search on it or on its
+    // snapshots only reads them. decide() does this before its clock starts; callers
+    // that snapshot the model should do it first, off the EDT for big boards.
+    public static void prepare(BoardModel m, Difficulty level) {
+        if (level == Difficulty.EXPERT) {
+            m.raceMap(false);  // CPU to move; only the sides that moved since are searched again
+            return;
+        }
+        m.regions();
+        if (level == Difficulty.HARD) m.gemDistances();
+    }
+    
+    // Searches for at most budgetMillis and returns the answer of the deepest completed iteration
+    public static Decision decide(BoardModel m, Difficulty level, long budgetMillis) {
+        return decide(m, level, budgetMillis, SEARCH_POOL.getParallelism() > 1);
+    }
+
+    // Same, with HARD's root moves searched on SEARCH_POOL or all on the calling thread.
+    // Both give the same answer; callers that already run one decision per core pass false.
+    public static Decision decide(BoardModel m, Difficulty level, long budgetMillis, boolean parallel) {
+        prepare(m, level);
+        if (level == Difficulty.EXPERT) return AlphaBetaEngine.decide(m, budgetMillis);
+        
+        long start = System.nanoTime();
+        SearchBudget budget = new SearchBudget(start + budgetMillis * 1_000_000L);
         RegionPolicy policy = computeRegionsDivideConquer(m);
         
+        Direction dir;
         switch (level) {
-            case EASY:   return playEasyDCDirected(m, policy);
-            case MEDIUM: return playMediumDCDirected(m, policy);
-            case HARD:   return playHardDCDirected(m, policy);
-            default:     return playMediumDCDirected(m, policy);
-        }
+            case EASY:   dir = playEasyDCDirected(m, policy); break;
+            case MEDIUM: dir = playMediumDCDirected(m, policy, budget); break;
+            case HARD:
+                policy.gemDistances = m.gemDistances();
+                dir = playHardDCDirected(m, policy, budget, parallel);
+                break;
+            default:     dir = playMediumDCDirected(m, policy, budget); break;
+        }
+        return new Decision(dir, budget.completedDepth, budget.nodes, System.nanoTime() - start);
     }
 
     /******************************************************************
-     * FUNCTION 4: TRUE DIVIDE AND CONQUER - Global Board Partitioning
-     * Classic D&C: Recursively divides board, analyzes, combines results
+     * FUNCTION 4: DIVIDE AND CONQUER - Global Board Partitioning
+     * Quadtree of board regions (see RegionIndex); the model keeps it
+     * and re-aggregates only the regions the last moves touched
      ******************************************************************/
     private static RegionPolicy computeRegionsDivideConquer(BoardModel m) {
-        // Create root region covering entire board
-        Region root = new Region(0, m.rows, 0, m.cols, 0);
-        
-        // TRUE D&C: Recursively divide and analyze
-        root = divideAndConquerAnalyze(m, root, 3); // Depth 3 = up to 64 subregions
-        
-        // Find best and worst regions using D&C search
-        Region best = findExtremeRegion(root, true);  // true = find max
-        Region worst = findExtremeRegion(root, false); // false = find min
-        
-        return new RegionPolicy(best, worst);
-    }
-    
-    // TRUE D&C METHOD: Recursively divides region
-    private static Region divideAndConquerAnalyze(BoardModel m, Region region, int depth) {
-        // BASE CASE: Region is small enough or depth limit reached
-        if (depth == 0 || region.area() <= 4) {
-            analyzeRegionDirectly(m, region);
-            return region;
-        }
-        
-        // DIVIDE: Split into 4 equal quadrants (classic D&C division)
-        int midRow = (region.rowStart + region.rowEnd) / 2;
-        int midCol = (region.colStart + region.colEnd) / 2;
-        
-        // Recursively process each quadrant (CONQUER step)
-        Region[] quadrants = new Region[4];
-        quadrants[0] = divideAndConquerAnalyze(m, 
-            new Region(region.rowStart, midRow, region.colStart, midCol, region.index * 4 + 1), 
-            depth - 1);
-        quadrants[1] = divideAndConquerAnalyze(m, 
-            new Region(region.rowStart, midRow, midCol, region.colEnd, region.index * 4 + 2), 
-            depth - 1);
-        quadrants[2] = divideAndConquerAnalyze(m, 
-            new Region(midRow, region.rowEnd, region.colStart, midCol, region.index * 4 + 3), 
-            depth - 1);
-        quadrants[3] = divideAndConquerAnalyze(m, 
-            new Region(midRow, region.rowEnd, midCol, region.colEnd, region.index * 4 + 4), 
-            depth - 1);
-        
-        // COMBINE: Aggregate results from quadrants
-        region.gemCount = 0;
-        region.shieldCount = 0;
-        region.mineCount = 0;
-        region.wallCount = 0;
-        region.deadEndCount = 0;
-        
-        for (Region quad : quadrants) {
-            region.gemCount += quad.gemCount;
-            region.shieldCount += quad.shieldCount;
-            region.mineCount += quad.mineCount;
-            region.wallCount += quad.wallCount;
-            region.deadEndCount += quad.deadEndCount;
-            region.subregions.add(quad);
-        }
-        
-        // Calculate combined score
-        region.score = region.computeScore();
-        
-        return region;
-    }
-    
-    // TRUE D&C METHOD: Find extreme region (max or min score)
-    private static Region findExtremeRegion(Region region, boolean findMax) {
-        // BASE CASE: Leaf region (no subregions)
-        if (region.subregions.isEmpty()) {
-            return region;
-        }
-        
-        // DIVIDE: Find extreme in each subregion
-        List<Region> extremeSubregions = new ArrayList<>();
-        for (Region sub : region.subregions) {
-            extremeSubregions.add(findExtremeRegion(sub, findMax));
-        }
-        
-        // COMBINE: Select the most extreme from subregions
-        Region extreme = extremeSubregions.get(0);
-        for (int i = 1; i < extremeSubregions.size(); i++) {
-            Region current = extremeSubregions.get(i);
-            if (findMax) {
-                if (current.score > extreme.score) {
-                    extreme = current;
-                }
-            } else {
-                if (current.score < extreme.score) {
-                    extreme = current;
-                }
-            }
-        }
-        
-        return extreme;
+        RegionIndex regions = m.regions();
+        return new RegionPolicy(regions.bestLeaf(), regions.worstLeaf());
     }
 
     /******************************************************************
@@ -172,126 +158,119 @@ public class Greedy {
      * FUNCTION 2: TRUE DIVIDE AND CONQUER - Search Space Exploration
      * Classic D&C: Recursively divides search space, explores, combines paths
      ******************************************************************/
-    private static Direction playMediumDCDirected(BoardModel m, RegionPolicy policy) {
-        // TRUE D&C: Recursively search for gems
-        SearchResult result = divideAndConquerSearchForGem(m, policy, 
-            m.cpuRow, m.cpuCol, m.cpuShields, 
-            new HashSet<>(), 0, 4); // Depth 4 search
+    private static Direction playMediumDCDirected(BoardModel m, RegionPolicy policy, SearchBudget budget) {
+        long result = NO_RESULT;
+        
+        // Iterative deepening: keep the answer of the last depth that finished in time.
+        // Depth 1 always runs, so there is an answer however little budget is left.
+        for (int maxDepth = 1; maxDepth <= MEDIUM_MAX_DEPTH && (maxDepth == 1 || budget.hasTime()); maxDepth++) {
+            budget.depthCut = false;
+            try {
+                // TRUE D&C: Recursively search for gems
+                long found = divideAndConquerSearchForGem(m, policy, 
+                    m.cpuRow, m.cpuCol, m.cpuShields, 
+                    VisitedBits.forBoard(m), 0, maxDepth, budget);
+                if (found != NO_RESULT) result = found;
+            } catch (SearchTimeout e) {
+                break;
+            }
+            budget.completed(maxDepth);
+            if (!budget.depthCut) break; // nothing left below the depth limit
+            // Gem already in sight: deeper lines only trade distance for bigger hauls
+            if (result != NO_RESULT && maxDepth >= MEDIUM_MIN_DEPTH) break;
+        }
+        if (result != NO_RESULT) return Direction.ALL[resultMove(result)];
         
-        return result != null ? result.firstDirection : 
+        // No gem within the search depth: head for the nearest one, however far
+        Direction toward = nearestGemDirection(m);
+        return toward != null ? toward : 
                divideAndConquerEvaluateDirections(m, policy, 
-                   new ArrayList<>(Arrays.asList(Directio       n.values())), 0).direction;
+                   new ArrayList<>(Arrays.asList(Direction.values())), 0).direction;
     }
     
-    // TRUE D&C METHOD: Recursively searches for gems
-    private static SearchResult divideAndConquerSearchForGem(BoardModel m, RegionPolicy policy,
-                                                            int r, int c, int shields,
-                                                            Set<String> visited, int depth, int maxDepth) {
+    // TRUE D&C METHOD: Recursively searches for gems; returns a packed result (see
+    // packResult), or NO_RESULT if no gem is within reach
+    private static long divideAndConquerSearchForGem(BoardModel m, RegionPolicy policy,
+                                                     int r, int c, int shields,
+                                                     VisitedBits visited, int depth, int maxDepth,
+                                                     SearchBudget budget) {
         // BASE CASE: Depth limit reached
         if (depth >= maxDepth) {
-            return null;
+            budget.depthCut = true;
+            return NO_RESULT;
         }
+        budget.visitNode();
         
-        // Get all possible moves from current position
-        List<Direction> possibleDirections = new ArrayList<>();
-        for (Direction d : Direction.values()) {
-            BoardModel.SlideResult slideRes = m.slide(r, c, d, false);
-            if (!isDeadlyMove(slideRes, shields) && (slideRes.r != r || slideRes.c != c)) {
-                possibleDirections.add(d);
-            }
-        }
+        // Get all possible moves from current position, one bit per Direction
+        int possibleDirections = m.safeDirections(r, c, shields);
         
         // BASE CASE: No possible moves
-        if (possibleDirections.isEmpty()) {
-            return null;
+        if (possibleDirections == 0) {
+            return NO_RESULT;
         }
         
-        // DIVIDE: Split search space into regions based on direction
-        Map<String, List<Direction>> directionGroups = new HashMap<>();
-        for (Direction d : possibleDirections) {
-            String group = getDirectionGroup(d);
-            directionGroups.computeIfAbsent(group, k -> new ArrayList<>()).add(d);
-        }
-        
-        List<SearchResult> groupResults = new ArrayList<>();
+        long bestResult = NO_RESULT;
         
-        // CONQUER: Search each group independently
-        for (List<Direction> group : directionGroups.values()) {
-            // Further divide group if large
-            if (group.size() > 2) {
-                int mid = group.size() / 2;
-                List<Direction> subgroup1 = group.subList(0, mid);
-                List<Direction> subgroup2 = group.subList(mid, group.size());
+        // DIVIDE: Split search space into regions based on direction
+        for (int groupMask : DIRECTION_GROUPS) {
+            int group = possibleDirections & groupMask;
+            if (group == 0) continue;
+            
+            // CONQUER: Search each group independently
+            if (Integer.bitCount(group) > 2) {
+                // Further divide group if large
+                int subgroup1 = lowestMoves(group, Integer.bitCount(group) / 2);
+                int subgroup2 = group & ~subgroup1;
                 
-                SearchResult res1 = searchDirectionSubgroup(m, policy, r, c, shields, 
-                                                           visited, depth, maxDepth, subgroup1);
-                SearchResult res2 = searchDirectionSubgroup(m, policy, r, c, shields, 
-                                                           visited, depth, maxDepth, subgroup2);
+                long res1 = searchDirectionSubgroup(m, policy, r, c, shields, 
+                                                    visited, depth, maxDepth, budget, subgroup1);
+                long res2 = searchDirectionSubgroup(m, policy, r, c, shields, 
+                                                    visited, depth, maxDepth, budget, subgroup2);
                 
-                if (res1 != null) groupResults.add(res1);
-                if (res2 != null) groupResults.add(res2);
+                // COMBINE: Keep the best result across groups
+                bestResult = betterResult(betterResult(bestResult, res1), res2);
             } else {
-                SearchResult res = searchDirectionSubgroup(m, policy, r, c, shields, 
-                                                          visited, depth, maxDepth, group);
-                if (res != null) groupResults.add(res);
-            }
-        }
-        
-        // COMBINE: Select best result from all groups
-        if (groupResults.isEmpty()) {
-            return null;
-        }
-        
-        SearchResult bestResult = groupResults.get(0);
-        for (int i = 1; i < groupResults.size(); i++) {
-            if (compareSearchResults(groupResults.get(i), bestResult) > 0) {
-                bestResult = groupResults.get(i);
+                long res = searchDirectionSubgroup(m, policy, r, c, shields, 
+                                                   visited, depth, maxDepth, budget, group);
+                bestResult = betterResult(bestResult, res);
             }
         }
         
         return bestResult;
     }
     
-    // Helper for D&C search
-    private static SearchResult searchDirectionSubgroup(BoardModel m, RegionPolicy policy,
-                                                       int r, int c, int shields,
-                                                       Set<String> visited, int depth, int maxDepth,
-                                                       List<Direction> directions) {
-        SearchResult bestSubgroupResult = null;
-        
-        for (Direction d : directions) {
-            BoardModel.SlideResult slideRes = m.slide(r, c, d, false);
+    // Helper for D&C search over the directions set in a move mask
+    private static long searchDirectionSubgroup(BoardModel m, RegionPolicy policy,
+                                                int r, int c, int shields,
+                                                VisitedBits visited, int depth, int maxDepth,
+                                                SearchBudget budget, int directions) {
+        long bestSubgroupResult = NO_RESULT;
+        
+        for (int rest = directions; rest != 0; rest &= rest - 1) {
+            int k = Integer.numberOfTrailingZeros(rest);
+            long slideRes = m.slidePacked(r, c, Direction.ALL[k]);
+            int nr = m.slideRow(slideRes), nc = m.slideCol(slideRes);
             
             // Check for immediate gem
-            if (slideRes.gems > 0) {
-                SearchResult immediate = new SearchResult(d, slideRes.gems, 1);
-                immediate.regionBonus = getRegionBonus(m, policy, slideRes.r, slideRes.c);
-                if (bestSubgroupResult == null || 
-                    compareSearchResults(immediate, bestSubgroupResult) > 0) {
-                    bestSubgroupResult = immediate;
-                }
+            if (BoardModel.slideGems(slideRes) > 0) {
+                long immediate = packResult(k, BoardModel.slideGems(slideRes), 1, 
+                                            getRegionBonus(m, policy, nr, nc));
+                bestSubgroupResult = betterResult(bestSubgroupResult, immediate);
                 continue;
             }
             
             // Recursive search if move is valid
-            String key = slideRes.r + "," + slideRes.c + "," + shields;
-            if (!visited.contains(key)) {
+            int key = visited.bit(m.index(nr, nc), shields);
+            if (visited.enter(key)) {
                 int nextShields = adjustShields(slideRes, shields);
-                Set<String> newVisited = new HashSet<>(visited);
-                newVisited.add(key);
                 
-                SearchResult deeperResult = divideAndConquerSearchForGem(m, policy, 
-                    slideRes.r, slideRes.c, nextShields, 
-                    newVisited, depth + 1, maxDepth);
+                long deeperResult = divideAndConquerSearchForGem(m, policy, 
+                    nr, nc, nextShields, 
+                    visited, depth + 1, maxDepth, budget);
+                visited.exit(key);
                 
-                if (deeperResult != null) {
-                    deeperResult.firstDirection = d;
-                    deeperResult.depth += 1;
-                    
-                    if (bestSubgroupResult == null || 
-                        compareSearchResults(deeperResult, bestSubgroupResult) > 0) {
-                        bestSubgroupResult = deeperResult;
-                    }
+                if (deeperResult != NO_RESULT) {
+                    bestSubgroupResult = betterResult(bestSubgroupResult, oneMoveEarlier(deeperResult, k));
                 }
             }
         }
@@ -301,190 +280,368 @@ public class Greedy {
 
     /******************************************************************
      * FUNCTION 3: TRUE DIVIDE AND CONQUER - Decision Tree Evaluation
-     * Classic D&C: Recursively builds and evaluates decision tree
+     * Classic D&C: Recursively builds and evaluates decision tree.
+     * The tree is walked depth-first without materialising its nodes:
+     * each subtree is reduced to its value as soon as it is built.
      ******************************************************************/
-    private static Direction playHardDCDirected(BoardModel m, RegionPolicy policy) {
-        // Build decision tree using D&C
-        DecisionTree tree = buildDecisionTreeDAC(m, policy, 
-            m.cpuRow, m.cpuCol, m.cpuShields, 
-            new HashSet<>(), HARD_DEPTH);
-        
-        // Evaluate tree using D&C
-        TreeEvaluation eval = evaluateTreeDAC(tree);
+    private static Direction playHardDCDirected(BoardModel m, RegionPolicy policy, SearchBudget budget,
+                                                boolean parallel) {
+        int bestMove = NO_MOVE;
+        boolean searched = false;
+        HardTables tables = HARD_TABLES.get();
+        tables.newSearch();
+        policy.futureBound = futureUpperBound(m);
+        
+        // Iterative deepening; the tables carry results from one depth into the next.
+        // Depth 1 always runs, so there is an answer however little budget is left.
+        for (int depth = 1; depth <= HARD_MAX_DEPTH && (depth == 1 || budget.hasTime()); depth++) {
+            budget.depthCut = false;
+            try {
+                // Build and evaluate the decision tree using D&C
+                bestMove = parallel
+                    ? RootSearch.run(m, policy, tables, depth, budget)
+                    : searchRootDAC(m, policy, tables, depth, budget, false);
+            } catch (SearchTimeout e) {
+                break;
+            }
+            searched = true;
+            budget.completed(depth);
+            if (!budget.depthCut) break;
+        }
         
-        return eval != null ? eval.bestDirection : 
-               divideAndConquerEvaluateDirections(m, policy, 
+        if (searched) return bestMove == NO_MOVE ? null : Direction.ALL[bestMove];
+        return divideAndConquerEvaluateDirections(m, policy, 
                    new ArrayList<>(Arrays.asList(Direction.values())), 0).direction;
     }
     
-    // TRUE D&C METHOD: Builds decision tree recursively
-    private static DecisionTree buildDecisionTreeDAC(BoardModel m, RegionPolicy policy,
-                                                    int r, int c, int shields,
-                                                    Set<Integer> visited, int depth) {
-        DecisionTree tree = new DecisionTree(r, c, shields);
-        
-        // BASE CASE: Depth limit or no valid moves
-        if (depth == 0) {
-            tree.score = evaluatePosition(m, policy, r, c);
-            return tree;
-        }
-        
-        // Get valid moves
-        List<Direction> validMoves = getValidMoves(m, r, c, shields);
-        if (validMoves.isEmpty()) {
-            tree.score = evaluatePosition(m, policy, r, c);
-            return tree;
+    /******************************************************************
+     * FUNCTION 3b: Root of the decision tree, optionally split across
+     * the fork/join pool. The eldest root move is searched first; its
+     * value is the alpha every younger brother is searched against,
+     * cut wherever a line provably falls below it. The younger
+     * brothers run on SEARCH_POOL (inside RootSearch, so the forks go
+     * to its workers) or one after another. They see the same bounds
+     * and table contents either way (see HardTables), so both choose
+     * the same move.
+     ******************************************************************/
+    private static int searchRootDAC(BoardModel m, RegionPolicy policy, HardTables tables,
+                                     int depth, SearchBudget budget, boolean parallel) {
+        int r = m.cpuRow, c = m.cpuCol, shields = m.cpuShields;
+        budget.visitNode();
+        
+        int[] moves = new int[Direction.ALL.length];
+        int count = 0;
+        for (int mask = m.safeDirections(r, c, shields); mask != 0; mask &= mask - 1) {
+            moves[count++] = Integer.numberOfTrailingZeros(mask);
+        }
+        if (count == 0) return NO_MOVE;
+        
+        // Best immediate gain first, so the eldest brother usually sets a high alpha.
+        // Stable insertion sort: equal gains keep Direction order.
+        double[] immediate = new double[Direction.ALL.length];
+        for (int i = 0; i < count; i++) {
+            Direction d = Direction.ALL[moves[i]];
+            immediate[moves[i]] = evaluateMove(m, policy, m.slidePacked(r, c, d), d);
+        }
+        for (int i = 1; i < count; i++) {
+            int k = moves[i], j = i;
+            while (j > 0 && immediate[moves[j - 1]] < immediate[k]) {
+                moves[j] = moves[j - 1];
+                j--;
+            }
+            moves[j] = k;
         }
         
-        // DIVIDE: Split moves into groups for parallel processing
-        if (validMoves.size() > 2) {
-            int groupSize = Math.max(2, validMoves.size() / 3);
-            List<List<Direction>> moveGroups = new ArrayList<>();
-            
-            for (int i = 0; i < validMoves.size(); i += groupSize) {
-                int end = Math.min(i + groupSize, validMoves.size());
-                moveGroups.add(validMoves.subList(i, end));
+        double[] values = new double[Direction.ALL.length];
+        values[moves[0]] = searchRootMove(m, policy, tables, moves[0], depth, budget, NO_LINE);
+        tables.publish(moves[0]);
+        double alpha = values[moves[0]];
+        if (parallel && count > 1) {
+            RootTask[] younger = new RootTask[count - 1];
+            for (int i = 1; i < count; i++) {
+                younger[i - 1] = new RootTask(m, policy, tables, moves[i], depth, budget.fork(), alpha);
             }
-            
-            // CONQUER: Build subtree for each group
-            for (List<Direction> group : moveGroups) {
-                List<DecisionTree> groupSubtrees = new ArrayList<>();
-                
-                for (Direction d : group) {
-                    BoardModel.SlideResult res = m.slide(r, c, d, false);
-                    int nextShields = adjustShields(res, shields);
-                    
-                    int cellKey = res.r * 1000 + res.c;
-                    if (!visited.contains(cellKey)) {
-                        Set<Integer> newVisited = new HashSet<>(visited);
-                        newVisited.add(cellKey);
-                        
-                        DecisionTree subtree = buildDecisionTreeDAC(m, policy, 
-                            res.r, res.c, nextShields, newVisited, depth - 1);
-                        subtree.direction = d;
-                        subtree.immediateValue = evaluateMove(m, policy, res, d);
-                        groupSubtrees.add(subtree);
-                    }
-                }
-                
-                // COMBINE within group: Select best subtree
-                if (!groupSubtrees.isEmpty()) {
-                    DecisionTree bestInGroup = groupSubtrees.get(0);
-                    for (int i = 1; i < groupSubtrees.size(); i++) {
-                        if (groupSubtrees.get(i).getTotalValue() > bestInGroup.getTotalValue()) {
-                            bestInGroup = groupSubtrees.get(i);
-                        }
-                    }
-                    tree.children.add(bestInGroup);
-                }
+            ForkJoinTask.invokeAll(younger);
+            for (RootTask task : younger) {
+                budget.nodes += task.budget.nodes;
+                budget.depthCut |= task.budget.depthCut;
+                if (task.timedOut) throw SearchTimeout.INSTANCE;
+                values[task.move] = task.value;
             }
         } else {
-            // Small group, process directly
-            for (Direction d : validMoves) {
-                BoardModel.SlideResult res = m.slide(r, c, d, false);
-                int nextShields = adjustShields(res, shields);
-                
-                int cellKey = res.r * 1000 + res.c;
-                if (!visited.contains(cellKey)) {
-                    Set<Integer> newVisited = new HashSet<>(visited);
-                    newVisited.add(cellKey);
-                    
-                    DecisionTree subtree = buildDecisionTreeDAC(m, policy, 
-                        res.r, res.c, nextShields, newVisited, depth - 1);
-                    subtree.direction = d;
-                    subtree.immediateValue = evaluateMove(m, policy, res, d);
-                    tree.children.add(subtree);
-                }
+            for (int i = 1; i < count; i++) {
+                values[moves[i]] = searchRootMove(m, policy, tables, moves[i], depth, budget, alpha);
             }
         }
-        
-        return tree;
+        for (int i = 1; i < count; i++) tables.publish(moves[i]);
+        
+        // Highest value; ties go to the first move in Direction order. A younger brother
+        // that was cut is worth less than alpha, so it never wins.
+        int bestMove = NO_MOVE;
+        double bestValue = NO_LINE;
+        for (int mask = m.safeDirections(r, c, shields); mask != 0; mask &= mask - 1) {
+            int k = Integer.numberOfTrailingZeros(mask);
+            if (values[k] > bestValue) {
+                bestValue = values[k];
+                bestMove = k;
+            }
+        }
+        return bestMove;
     }
     
-    // TRUE D&C METHOD: Evaluates decision tree recursively
-    private static TreeEvaluation evaluateTreeDAC(DecisionTree tree) {
-        // BASE CASE: Leaf node
-        if (tree.children.isEmpty()) {
-            return new TreeEvaluation(tree.direction, tree.getTotalValue());
-        }
+    // Value of one root move; below alpha if it cannot reach it
+    private static double searchRootMove(BoardModel m, RegionPolicy policy, HardTables tables,
+                                         int k, int depth, SearchBudget budget, double alpha) {
+        return buildSubtree(m, policy, tables.own[k], tables.shared, m.cpuRow, m.cpuCol, m.cpuShields, k,
+                            VisitedBits.forBoard(m), depth, budget, alpha);
+    }
+    
+    // One decision's transposition tables. Each root move writes to its own table and
+    // reads it and the shared one; the shared table only changes between phases of an
+    // iteration, when publish() copies a root move's entries into it: after the eldest
+    // brother, then the younger ones in Direction order. What any search reads therefore
+    // does not depend on which worker ran which move, or when.
+    private static final class HardTables {
+        final TranspositionTable shared = new TranspositionTable(16);
+        final TranspositionTable[] own = new TranspositionTable[Direction.ALL.length];
         
-        // DIVIDE: Evaluate each subtree
-        List<TreeEvaluation> subtreeEvals = new ArrayList<>();
-        for (DecisionTree child : tree.children) {
-            subtreeEvals.add(evaluateTreeDAC(child));
+        HardTables() {
+            for (int k = 0; k < own.length; k++) own[k] = new TranspositionTable(12);
         }
         
-        // CONQUER: Combine subtree evaluations
-        TreeEvaluation bestChildEval = subtreeEvals.get(0);
-        double bestValue = bestChildEval.totalValue * 0.9; // Discount future
+        void newSearch() {
+            shared.newSearch();
+            for (TranspositionTable tt : own) tt.newSearch();
+        }
         
-        for (int i = 1; i < subtreeEvals.size(); i++) {
-            double childValue = subtreeEvals.get(i).totalValue * 0.9;
-            if (childValue > bestValue) {
-                bestValue = childValue;
-                bestChildEval = subtreeEvals.get(i);
+        void publish(int k) {
+            own[k].copyInto(shared);
+            own[k].newSearch();
+        }
+    }
+    
+    // One iteration's root split, submitted to SEARCH_POOL; a timeout is handed back as a
+    // flag, since invoke() may rethrow a copy of the exception on the calling thread
+    private static class RootSearch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        final BoardModel m;
+        final RegionPolicy policy;
+        final HardTables tables;
+        final int depth;
+        final SearchBudget budget;
+        int bestMove = NO_MOVE;
+        boolean timedOut;
+        
+        private RootSearch(BoardModel m, RegionPolicy policy, HardTables tables,
+                           int depth, SearchBudget budget) {
+            this.m = m; this.policy = policy; this.tables = tables; this.depth = depth; this.budget = budget;
+        }
+        
+        static int run(BoardModel m, RegionPolicy policy, HardTables tables,
+                       int depth, SearchBudget budget) {
+            RootSearch search = new RootSearch(m, policy, tables, depth, budget);
+            SEARCH_POOL.invoke(search);
+            if (search.timedOut) throw SearchTimeout.INSTANCE;
+            return search.bestMove;
+        }
+        
+        @Override
+        protected void compute() {
+            try {
+                bestMove = searchRootDAC(m, policy, tables, depth, budget, true);
+            } catch (SearchTimeout e) {
+                timedOut = true;
             }
         }
-        
-        // COMBINE: Current value + best future value
-        double totalValue = tree.immediateValue + bestValue;
-        Direction bestDir = (tree.direction != null) ? tree.direction : bestChildEval.bestDirection;
-        
-        return new TreeEvaluation(bestDir, totalValue);
     }
-
-    /******************************************************************
-     * Helper Methods
-     ******************************************************************/
-    private static void analyzeRegionDirectly(BoardModel m, Region region) {
-        for (int r = region.rowStart; r < region.rowEnd; r++) {
-            for (int c = region.colStart; c < region.colEnd; c++) {
-                Cell cell = m.grid[r][c];
-                
-                if (cell.wall) region.wallCount++;
-                else if (cell.mine) region.mineCount++;
-                else if (cell.gem) region.gemCount++;
-                else if (cell.shield) region.shieldCount++;
-                
-                if (!cell.wall && isDeadEnd(m, r, c)) {
-                    region.deadEndCount++;
-                }
+    
+    // A younger root move, searched against the eldest brother's value
+    private static class RootTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        final BoardModel m;
+        final RegionPolicy policy;
+        final HardTables tables;
+        final int move, depth;
+        final SearchBudget budget;
+        final double alpha;
+        double value = NO_LINE;
+        boolean timedOut;
+        
+        RootTask(BoardModel m, RegionPolicy policy, HardTables tables,
+                 int move, int depth, SearchBudget budget, double alpha) {
+            this.m = m; this.policy = policy; this.tables = tables;
+            this.move = move; this.depth = depth; this.budget = budget; this.alpha = alpha;
+        }
+        
+        @Override
+        protected void compute() {
+            try {
+                value = searchRootMove(m, policy, tables, move, depth, budget, alpha);
+            } catch (SearchTimeout e) {
+                timedOut = true;
             }
         }
-        region.score = region.computeScore();
     }
     
-    private static boolean isDeadEnd(BoardModel m, int r, int c) {
-        int blocked = 0;
-        for (Direction d : Direction.values()) {
-            int nr = r + d.dx;
-            int nc = c + d.dy;
-            if (!m.inBounds(nr, nc) || m.grid[nr][nc].wall || m.grid[nr][nc].mine) {
-                blocked++;
+    // Upper bound on the discounted future value of any node. Uses the fixed point of
+    // bound = discount * (maxMove + bound), which holds at every depth, including
+    // values recalled from deeper transposition-table entries
+    private static double futureUpperBound(BoardModel m) {
+        double maxMove = m.gemsRemaining() * 100 + m.shieldsRemaining() * 50 + MAX_REGION_BONUS;
+        return Math.max(MAX_POSITION_SCORE, FUTURE_DISCOUNT * maxMove / (1 - FUTURE_DISCOUNT));
+    }
+    
+    // TRUE D&C METHOD: Builds decision tree recursively; returns the node's future value.
+    // Lines that provably cannot reach need are cut: the result is then an upper bound
+    // below need rather than the exact value.
+    private static double buildDecisionTreeDAC(BoardModel m, RegionPolicy policy,
+                                               TranspositionTable tt, TranspositionTable shared,
+                                               int r, int c, int shields,
+                                               VisitedBits visited, int depth, SearchBudget budget,
+                                               double need) {
+        // BASE CASE: Depth limit or no valid moves
+        if (depth == 0) {
+            budget.depthCut = true;
+            return evaluatePosition(m, policy, r, c, shields);
+        }
+        budget.visitNode();
+        
+        // Get valid moves, one bit per Direction
+        int validMoves = m.safeDirections(r, c, shields);
+        int count = Integer.bitCount(validMoves);
+        if (count == 0) {
+            return evaluatePosition(m, policy, r, c, shields);
+        }
+        
+        // DIVIDE: Split moves into groups of consecutive moves (in Direction order)
+        int groupSize = count > 2 ? Math.max(2, count / 3) : count;
+        double childNeed = need / FUTURE_DISCOUNT;  // node value is best * FUTURE_DISCOUNT
+        double best = NO_LINE;
+        for (int rest = validMoves; rest != 0; ) {
+            int group = lowestMoves(rest, groupSize);
+            rest &= ~group;
+            
+            // CONQUER: Build subtree for each move of the group, keep the best
+            double bestInGroup = NO_LINE;
+            for (int g = group; g != 0; g &= g - 1) {
+                double value = buildSubtree(m, policy, tt, shared, r, c, shields, 
+                                            Integer.numberOfTrailingZeros(g), visited, depth, budget, childNeed);
+                if (value > bestInGroup) bestInGroup = value;
             }
+            
+            // COMBINE: Best subtree over all groups
+            if (bestInGroup > best) best = bestInGroup;
         }
-        return blocked >= 6;
+        
+        // Future value of this node, so transpositions can reuse it
+        return best == NO_LINE ? evaluatePosition(m, policy, r, c, shields) : best * FUTURE_DISCOUNT;
     }
     
+    // Immediate plus future value of sliding in direction k, the future recalled from the
+    // transposition tables when possible; NO_LINE if the slide repeats a state on the path.
+    // If even the largest possible future cannot reach need, that upper bound is returned.
+    private static double buildSubtree(BoardModel m, RegionPolicy policy,
+                                       TranspositionTable tt, TranspositionTable shared,
+                                       int r, int c, int shields, int k,
+                                       VisitedBits visited, int depth, SearchBudget budget, double need) {
+        Direction d = Direction.ALL[k];
+        long res = m.slidePacked(r, c, d);
+        int nr = m.slideRow(res), nc = m.slideCol(res);
+        int nextShields = adjustShields(res, shields);
+        
+        int visitBit = visited.bit(m.index(nr, nc), nextShields);
+        if (visited.isSet(visitBit)) return NO_LINE;
+        
+        double gain = evaluateMove(m, policy, res, d);
+        if (gain + policy.futureBound < need) {
+            budget.alphaCut = true;
+            return gain + policy.futureBound;
+        }
+        
+        // Transposition: same state already searched at least this deep, keep it as a leaf
+        long key = stateKey(m, nr, nc, nextShields);
+        double score = recall(tt, key, depth - 1, need - gain, budget);
+        if (Double.isNaN(score)) score = recall(shared, key, depth - 1, need - gain, budget);
+        if (Double.isNaN(score)) {
+            boolean outerCut = budget.alphaCut;
+            budget.alphaCut = false;
+            visited.enter(visitBit);
+            score = buildDecisionTreeDAC(m, policy, tt, shared, nr, nc, nextShields, visited, depth - 1, budget,
+                                         need - gain);
+            visited.exit(visitBit);
+            // Exact unless a line below was cut; then only an upper bound
+            byte bound = budget.alphaCut ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+            tt.store(key, depth - 1, score, bound, TranspositionTable.NO_MOVE);
+            budget.alphaCut |= outerCut;
+        }
+        return gain + score;
+    }
+    
+    // Stored future value of a state searched at least depth deep, if it settles this
+    // search: an exact value, or an upper bound that is below need. NaN otherwise.
+    private static double recall(TranspositionTable tt, long key, int depth, double need, SearchBudget budget) {
+        int slot = tt.probe(key, depth);
+        if (slot < 0) return Double.NaN;
+        double value = tt.value(slot);
+        if (tt.bound(slot) == TranspositionTable.EXACT) return value;
+        if (value >= need) return Double.NaN;
+        budget.alphaCut = true;
+        return value;
+    }
+    
+    // Zobrist key of a search state: position, shields and the items left on the board
+    private static long stateKey(BoardModel m, int r, int c, int shields) {
+        return m.itemHash()
+             ^ BoardModel.zobrist(BoardModel.ZOBRIST_POSITION, m.index(r, c))
+             ^ BoardModel.zobrist(BoardModel.ZOBRIST_SHIELDS, shields);
+    }
+
+    /******************************************************************
+     * Helper Methods
+     ******************************************************************/
     private static double evaluateSingleDirection(BoardModel m, RegionPolicy policy, Direction d) {
-        BoardModel.SlideResult res = m.slide(m.cpuRow, m.cpuCol, d, false);
+        long res = m.slidePacked(m.cpuRow, m.cpuCol, d);
         
-        if (res.hitMine && m.cpuShields == 0) return -1000;
-        if (res.r == m.cpuRow && res.c == m.cpuCol) return -500;
+        if (BoardModel.slideHitMine(res) && m.cpuShields == 0) return -1000;
+        if (!isMoving(m, res, m.cpuRow, m.cpuCol)) return -500;
         
-        double score = res.gems * 100 + res.shields * 50;
-        score += getRegionBonus(m, policy, res.r, res.c);
+        double score = BoardModel.slideGems(res) * 100 + BoardModel.slideShields(res) * 50;
+        score += getRegionBonus(m, policy, m.slideRow(res), m.slideCol(res));
         
         return score;
     }
     
-    private static boolean isDeadlyMove(BoardModel.SlideResult res, int shields) {
-        return res.hitMine && (shields == 0);
+    // First move of a shortest chain of mine-free slides ending in one that collects a
+    // gem, by breadth-first search over the slide graph; null if no gem is reachable
+    private static Direction nearestGemDirection(BoardModel m) {
+        SlideGraph graph = m.slideGraph();
+        SlideGraph.Bfs bfs = SlideGraph.bfs(m.rows * m.cols);
+        int from = m.index(m.cpuRow, m.cpuCol);
+        bfs.offer(from, -1);
+        while (!bfs.isEmpty()) {
+            int p = bfs.poll();
+            for (int ks = graph.moves(p); ks != 0; ks &= ks - 1) {
+                int e = graph.edge(p, Integer.numberOfTrailingZeros(ks));
+                if (SlideGraph.edgeHitsMine(e)) continue;
+                int k = SlideGraph.edgeDirection(e);
+                int first = p == from ? k : bfs.tag(p);
+                if (SlideGraph.edgeMayCrossGems(e)
+                        && BoardModel.slideGems(m.slidePacked(p / m.cols, p % m.cols, Direction.ALL[k])) > 0) {
+                    return Direction.ALL[first];
+                }
+                bfs.offer(SlideGraph.edgeCell(e), first);
+            }
+        }
+        return null;
     }
     
-    private static int adjustShields(BoardModel.SlideResult res, int shields) {
-        int nextShields = shields + res.shields;
-        if (res.hitMine && nextShields > 0) {
+    private static boolean isMoving(BoardModel m, long res, int r, int c) {
+        return BoardModel.slideCell(res) != m.index(r, c);
+    }
+    
+    private static int adjustShields(long res, int shields) {
+        int nextShields = shields + BoardModel.slideShields(res);
+        if (BoardModel.slideHitMine(res) && nextShields > 0) {
             nextShields--;
         }
         return nextShields;
@@ -499,129 +656,200 @@ public class Greedy {
     }
     
     private static int getRegionBonus(BoardModel m, RegionPolicy policy, int r, int c) {
-        int regionIdx = getRegionIndex(m, r, c);
+        int leaf = RegionIndex.leafAt(m, r, c);
         int bonus = 0;
-        if (policy.bestRegion != null && regionIdx == policy.bestRegion.index) bonus += 30;
-        if (policy.worstRegion != null && regionIdx == policy.worstRegion.index) bonus -= 40;
+        if (leaf == policy.bestRegion) bonus += 30;
+        if (leaf == policy.worstRegion) bonus -= 40;
         return bonus;
     }
     
-    private static int getRegionIndex(BoardModel m, int r, int c) {
-        int midRow = m.rows / 2;
-        int midCol = m.cols / 2;
-        if (r < midRow) {
-            return (c < midCol) ? 1 : 2;
-        } else {
-            return (c < midCol) ? 3 : 4;
+    // Bit mask of the directions in a getDirectionGroup group
+    private static int groupMask(String group) {
+        int mask = 0;
+        for (Direction d : Direction.ALL) {
+            if (getDirectionGroup(d).equals(group)) mask |= 1 << d.ordinal();
         }
+        return mask;
     }
     
-    private static int compareSearchResults(SearchResult a, SearchResult b) {
-        if (a.value != b.value) return Integer.compare(a.value, b.value);
-        if (a.depth != b.depth) return Integer.compare(b.depth, a.depth);
-        return Integer.compare(b.regionBonus, a.regionBonus);
+    // The n lowest set bits of a move mask, i.e. its first n moves in Direction order
+    private static int lowestMoves(int mask, int n) {
+        int low = 0;
+        for (int i = 0; i < n && mask != 0; i++) {
+            low |= mask & -mask;
+            mask &= mask - 1;
+        }
+        return low;
     }
     
-    private static List<Direction> getValidMoves(BoardModel m, int r, int c, int shields) {
-        List<Direction> valid = new ArrayList<>();
-        for (Direction d : Direction.values()) {
-            BoardModel.SlideResult res = m.slide(r, c, d, false);
-            if (!isDeadlyMove(res, shields) && (res.r != r || res.c != c)) {
-                valid.add(d);
-            }
-        }
-        return valid;
+    // MEDIUM's search results are packed into a long,
+    //   gems << 16 | (63 - moves) << 10 | (64 - regionBonus) << 3 | first move,
+    // so that a higher (result >> 3) ranks first: more gems, then fewer moves, then the
+    // lower region bonus, and the search allocates no result objects
+    private static long packResult(int firstMove, int gems, int moves, int regionBonus) {
+        return (long) gems << 16 | (63 - moves) << 10 | (64 - regionBonus) << 3 | firstMove;
+    }
+    
+    // Candidate if it ranks strictly higher, else best (so the first of equals is kept)
+    private static long betterResult(long best, long candidate) {
+        return (candidate >> 3) > (best >> 3) ? candidate : best;
     }
     
-    private static double evaluatePosition(BoardModel m, RegionPolicy policy, int r, int c) {
+    // The same result reached through one more move, made first in direction k
+    private static long oneMoveEarlier(long result, int k) {
+        return ((result & ~7L) - (1 << 10)) | k;
+    }
+    
+    private static int resultMove(long result) {
+        return (int) (result & 7);
+    }
+    
+    private static double evaluatePosition(BoardModel m, RegionPolicy policy, int r, int c, int shields) {
         double score = 0;
         // Check adjacent cells for items
-        for (Direction d : Direction.values()) {
+        for (Direction d : Direction.ALL) {
             int nr = r + d.dx;
             int nc = c + d.dy;
             if (m.inBounds(nr, nc)) {
-                Cell cell = m.grid[nr][nc];
-                if (cell.gem) score += 50;
-                if (cell.shield) score += 25;
-                if (cell.mine) score -= 75;
+                int cell = m.cellFlags(nr, nc);
+                if ((cell & Cell.GEM) != 0) score += 50;
+                if ((cell & Cell.SHIELD) != 0) score += 25;
+                if ((cell & Cell.MINE) != 0) score -= 75;
             }
         }
+        // Long-range pull towards gems the search cannot see yet, where the level
+        // computed the distances (HARD); others keep the nearby score alone
+        GemDistances distances = policy.gemDistances;
+        if (distances != null) {
+            int slides = distances.distance(m.index(r, c), shields);
+            if (slides != GemDistances.UNREACHABLE) score += (double) GEM_PULL / slides;
+        }
         score += getRegionBonus(m, policy, r, c);
         return score;
     }
     
-    private static double evaluateMove(BoardModel m, RegionPolicy policy, BoardModel.SlideResult res, Direction d) {
-        double score = res.gems * 100 + res.shields * 50;
-        score += getRegionBonus(m, policy, res.r, res.c);
+    private static double evaluateMove(BoardModel m, RegionPolicy policy, long res, Direction d) {
+        double score = BoardModel.slideGems(res) * 100 + BoardModel.slideShields(res) * 50;
+        score += getRegionBonus(m, policy, m.slideRow(res), m.slideCol(res));
         return score;
     }
 
     /******************************************************************
      * Helper Classes
      ******************************************************************/
-    private static class Region {
-        int rowStart, rowEnd, colStart, colEnd, index;
-        int gemCount, shieldCount, mineCount, wallCount, deadEndCount;
-        double score;
-        List<Region> subregions = new ArrayList<>();
+    // Path set for make/unmake search: one bit per (cell, shield count),
+    // set when the search enters a state and cleared when it backs out
+    private static class VisitedBits {
+        private static final ThreadLocal<VisitedBits> CACHE = new ThreadLocal<>();
+        
+        long[] words;
+        int shieldLevels;
+        
+        // Reuses this thread's bitset when it is large enough for the board
+        static VisitedBits forBoard(BoardModel m) {
+            int levels = m.totalShields() + 1;
+            int words = (m.rows * m.cols * levels + 63) >>> 6;
+            VisitedBits bits = CACHE.get();
+            if (bits == null || bits.words.length < words) {
+                bits = new VisitedBits();
+                bits.words = new long[words];
+                CACHE.set(bits);
+            } else {
+                Arrays.fill(bits.words, 0, words, 0L);
+            }
+            bits.shieldLevels = levels;
+            return bits;
+        }
         
-        Region(int rs, int re, int cs, int ce, int idx) {
-            rowStart = rs; rowEnd = re; colStart = cs; colEnd = ce; index = idx;
+        int bit(int cell, int shields) {
+            return cell * shieldLevels + Math.min(shields, shieldLevels - 1);
         }
         
-        int area() { return (rowEnd - rowStart) * (colEnd - colStart); }
+        boolean isSet(int bit) {
+            return (words[bit >>> 6] & (1L << bit)) != 0;
+        }
         
-        double computeScore() {
-            double score = gemCount * 10.0 + shieldCount * 5.0 - 
-                          mineCount * 15.0 - deadEndCount * 8.0 - 
-                          wallCount * 0.5;
-            int area = area();
-            return area > 0 ? score / Math.sqrt(area) : score;
+        // Returns false if the state is already on the current path
+        boolean enter(int bit) {
+            long mask = 1L << bit;
+            if ((words[bit >>> 6] & mask) != 0) return false;
+            words[bit >>> 6] |= mask;
+            return true;
+        }
+        
+        void exit(int bit) {
+            words[bit >>> 6] &= ~(1L << bit);
         }
     }
     
-    private static class RegionPolicy {
-        Region bestRegion, worstRegion;
-        RegionPolicy(Region best, Region worst) {
-            this.bestRegion = best; this.worstRegion = worst;
+    // Time limit and telemetry for one decision
+    private static class SearchBudget {
+        final long deadline;
+        long nodes;
+        int completedDepth;
+        boolean depthCut;  // set when the running iteration stopped a line at its depth limit
+        boolean alphaCut;  // set when a HARD line was cut below alpha, see buildSubtree
+        boolean checkTime; // off for the first iteration, so there is always an answer
+        
+        SearchBudget(long deadline) { this.deadline = deadline; }
+        
+        // Budget for a parallel task: same deadline, own counters
+        SearchBudget fork() {
+            SearchBudget child = new SearchBudget(deadline);
+            child.checkTime = checkTime;
+            return child;
+        }
+        
+        // An interrupted search (e.g. the game was closed) stops like one that ran out of time
+        boolean hasTime() {
+            return System.nanoTime() < deadline && !Thread.currentThread().isInterrupted();
+        }
+        
+        void visitNode() {
+            nodes++;
+            if (checkTime && (nodes & 1023) == 0 && !hasTime()) throw SearchTimeout.INSTANCE;
+        }
+        
+        void completed(int depth) {
+            completedDepth = depth;
+            checkTime = true;
         }
     }
     
-    private static class DirectionResult {
-        Direction direction;
-        double score;
-        DirectionResult(Direction d, double s) { direction = d; score = s; }
+    // Unwinds an iteration that ran past its deadline; preallocated, no stack trace
+    private static final class SearchTimeout extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final SearchTimeout INSTANCE = new SearchTimeout();
+        private SearchTimeout() { super(null, null, false, false); }
     }
     
-    private static class SearchResult {
-        Direction firstDirection;
-        int value, depth, regionBonus;
-        SearchResult(Direction d, int v, int dep) {
-            firstDirection = d; value = v; depth = dep;
+    // Quadtree node ids of the best and worst leaf regions; HARD also sets the gem distances
+    // (null otherwise) and the bound on any node's future value
+    private static class RegionPolicy {
+        int bestRegion, worstRegion;
+        GemDistances gemDistances;
+        double futureBound;
+        RegionPolicy(int best, int worst) {
+            this.bestRegion = best; this.worstRegion = worst;
         }
     }
     
-    private static class DecisionTree {
-        int r, c, shields;
-        Direction direction;
-        double immediateValue, score;
-        List<DecisionTree> children = new ArrayList<>();
+    // Result of decide(): the move plus search telemetry
+    public static final class Decision {
+        public final Direction direction;
+        public final int depth;   // deepest fully completed iteration, 0 for EASY
+        public final long nodes;
+        public final long nanos;
         
-        DecisionTree(int r, int c, int s) {
-            this.r = r; this.c = c; this.shields = s;
-        }
-        
-        double getTotalValue() {
-            return immediateValue + score;
+        Decision(Direction d, int depth, long nodes, long nanos) {
+            direction = d; this.depth = depth; this.nodes = nodes; this.nanos = nanos;
         }
     }
     
-    private static class TreeEvaluation {
-        Direction bestDirection;
-        double totalValue;
-        TreeEvaluation(Direction d, double v) {
-            bestDirection = d; totalValue = v;
-        }
+    private static class DirectionResult {
+        Direction direction;
+        double score;
+        DirectionResult(Direction d, double s) { direction = d; score = s; }
     }
     
     // Legacy Node class for compatibility
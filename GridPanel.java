@@ -1,32 +1,83 @@
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import javax.swing.*;
 
 public class GridPanel extends JPanel {
 
+    private static final long serialVersionUID = 1L;
+
+    // Cell art is drawn in a BASE_CELL-pixel cell and scaled to the current zoom
+    private static final int BASE_CELL = 45;
+    public static final int MIN_CELL = 4;
+    public static final int MAX_CELL = 90;
+
+    // Below this size cells are drawn as flat colour blocks
+    private static final int DETAIL_CELL = 12;
+
+    // Token paints, shared instead of allocated every frame
+    private static final Color SHIELD_BUBBLE = new Color(0, 191, 255, 128);
+    private static final Font SHIELD_COUNT_FONT = new Font("SansSerif", Font.BOLD, 12);
+
     private final BoardModel model;
-    private final int size = 45;
+    private int size;
+
+    // Cell flags drawn on each layer
+    private static final int BACKGROUND_FLAGS = Cell.WALL | Cell.STOP;
+    private static final int ITEM_FLAGS = Cell.MINE | Cell.GEM | Cell.SHIELD;
+
+    // Layers are cached in square chunks of about this many pixels, built when first
+    // shown; chunks not drawn in the current frame are evicted beyond MAX_CHUNKS.
+    // Each chunk is put on screen from a VolatileImage copy of its layers, see Chunk.
+    private static final int CHUNK_PIXELS = 256;
+    private static final int MAX_CHUNKS = 64;
+
+    // Pre-rendered cell art per combination of layer flags at the current size
+    private final BufferedImage[] backgroundSprites = new BufferedImage[1 << 5];
+    private final BufferedImage[] itemSprites = new BufferedImage[1 << 5];
+    private BufferedImage gridSprite;
+    private int spriteSize = -1;
+
+    private final LinkedHashMap<Integer, Chunk> chunks = new LinkedHashMap<>(16, 0.75f, true);
+    private int chunkCells;
+    private int frame;
     private java.util.List<ShieldAnimation> shieldAnimations = new ArrayList<>();
+    private final ParticlePool particles = new ParticlePool();
 
     public GridPanel(BoardModel m) {
         model = m;
+        // Large boards start zoomed out so a useful part fits in the window
+        size = Math.max(MIN_CELL, Math.min(BASE_CELL, 540 / Math.max(m.rows, m.cols)));
         setPreferredSize(new Dimension(m.cols * size, m.rows * size));
         setBackground(new Color(240, 240, 245));
+
+        // Ctrl + wheel zooms around the pointer; plain wheel events go on to the scroll pane
+        addMouseWheelListener(e -> {
+            if (e.isControlDown()) {
+                zoom(e.getWheelRotation() < 0 ? 1.25 : 0.8, e.getPoint());
+            } else if (getParent() != null) {
+                getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+            }
+        });
         
+        // Repaints only where each animation was and now is, not the whole board
         javax.swing.Timer animTimer = new javax.swing.Timer(30, e -> {
-            boolean needsRepaint = false;
             Iterator<ShieldAnimation> it = shieldAnimations.iterator();
             while (it.hasNext()) {
                 ShieldAnimation anim = it.next();
+                Rectangle dirty = anim.bounds();
                 anim.update();
                 if (anim.isFinished()) {
                     it.remove();
+                } else {
+                    dirty.add(anim.bounds());
                 }
-                needsRepaint = true;
-            }
-            if (needsRepaint) {
-                repaint();
+                repaint(dirty);
             }
         });
         animTimer.start();
@@ -36,377 +87,635 @@ public class GridPanel extends JPanel {
         shieldAnimations.add(new ShieldAnimation(col * size + size/2, row * size + size/2));
     }
 
+    // One extra pixel for the grid line drawn on the cell's right and bottom edge
+    public void repaintCell(int row, int col) {
+        redrawItems(row, col);
+        repaint(col * size, row * size, size + 1, size + 1);
+    }
+
+    // Scales the cells by factor, keeping the board point under anchor where it is on screen
+    public void zoom(double factor, Point anchor) {
+        int next = Math.max(MIN_CELL, Math.min(MAX_CELL, (int) Math.round(size * factor)));
+        if (next == size) next = Math.max(MIN_CELL, Math.min(MAX_CELL, size + (factor > 1 ? 1 : -1)));
+        if (next == size) return;
+
+        // Anchor relative to the visible corner; the view may be a wrapper around this panel
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        Point view = viewport != null ? viewport.getViewPosition() : new Point();
+        Point offset = viewport != null ? SwingUtilities.convertPoint(this, 0, 0, viewport.getView()) : new Point();
+        int screenX = offset.x + anchor.x - view.x;
+        int screenY = offset.y + anchor.y - view.y;
+        double fx = anchor.x / (double) size;
+        double fy = anchor.y / (double) size;
+
+        size = next;
+        setPreferredSize(new Dimension(model.cols * size, model.rows * size));
+        revalidate();
+        if (viewport != null) {
+            viewport.validate();
+            offset = SwingUtilities.convertPoint(this, 0, 0, viewport.getView());
+            Dimension extent = viewport.getExtentSize();
+            Dimension whole = viewport.getViewSize();
+            int x = offset.x + (int) (fx * size) - screenX;
+            int y = offset.y + (int) (fy * size) - screenY;
+            viewport.setViewPosition(new Point(
+                Math.max(0, Math.min(x, whole.width - extent.width)),
+                Math.max(0, Math.min(y, whole.height - extent.height))));
+        }
+        repaint();
+    }
+
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2 = (Graphics2D) g;
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
 
-        // Draw grid cells
-        for (int r = 0; r < model.rows; r++) {
-            for (int c = 0; c < model.cols; c++) {
-                int x = c * size;
-                int y = r * size;
-                Cell cell = model.grid[r][c];
+        // Only the cells inside the clip: on large boards that is the visible viewport
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        int r0 = Math.max(0, clip.y / size);
+        int r1 = Math.min(model.rows - 1, (clip.y + clip.height) / size);
+        int c0 = Math.max(0, clip.x / size);
+        int c1 = Math.min(model.cols - 1, (clip.x + clip.width) / size);
 
-                // Background - simple original style
-                g2.setColor(cell.wall ? Color.DARK_GRAY : Color.LIGHT_GRAY);
-                g2.fillRect(x, y, size, size);
+        double scale = size / (double) BASE_CELL;
+        AffineTransform base = g2.getTransform();
 
-                // Draw stop markers
-                if (cell.stop) {
-                    g2.setColor(Color.BLACK);
-                    g2.setStroke(new BasicStroke(2));
-                    g2.drawOval(x + 6, y + 6, size - 12, size - 12);
-                }
+        // Layers, bottom to top: static background, items, static grid lines (detailed
+        // sizes only). One blit for each visible chunk.
+        validateCaches();
+        frame++;
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        for (int cr = r0 / chunkCells; cr <= r1 / chunkCells; cr++) {
+            for (int cc = c0 / chunkCells; cc <= c1 / chunkCells; cc++) {
+                chunk(cr, cc).draw(g2, gc, cc * chunkCells * size, cr * chunkCells * size);
+            }
+        }
+        evictChunks();
 
-                // Draw mines - enhanced bomb style
-                if (cell.mine) {
-                    int centerX = x + size/2;
-                    int centerY = y + size/2 + 1;
-                    int bombSize = size - 20;
-                    
-                    // Shadow
-                    g2.setColor(new Color(0, 0, 0, 60));
-                    g2.fillOval(centerX - bombSize/2 + 2, centerY - bombSize/2 + 3, bombSize, bombSize);
-                    
-                    // Bomb body - dark sphere with gradient
-                    RadialGradientPaint rgp = new RadialGradientPaint(
-                        centerX - 4, centerY - 4, bombSize/2,
-                        new float[]{0.0f, 0.7f, 1.0f},
-                        new Color[]{new Color(50, 50, 55), new Color(20, 20, 25), new Color(10, 10, 15)}
-                    );
-                    g2.setPaint(rgp);
-                    g2.fillOval(centerX - bombSize/2, centerY - bombSize/2, bombSize, bombSize);
-                    
-                    // Highlight
-                    g2.setColor(new Color(255, 255, 255, 100));
-                    g2.fillOval(centerX - bombSize/2 + 4, centerY - bombSize/2 + 3, 7, 7);
-                    
-                    // Fuse
-                    g2.setColor(new Color(40, 40, 45));
-                    g2.setStroke(new BasicStroke(2f));
-                    g2.drawLine(centerX - 1, centerY - bombSize/2, centerX - 4, centerY - bombSize/2 - 7);
-                    
-                    // Spark on fuse
-                    g2.setColor(new Color(255, 200, 50));
-                    g2.fillOval(centerX - 7, centerY - bombSize/2 - 10, 5, 5);
-                    g2.setColor(new Color(255, 255, 100));
-                    g2.fillOval(centerX - 6, centerY - bombSize/2 - 9, 3, 3);
-                }
+        // Overlay, drawn fresh every frame: tokens and animations
+        if (inRange(model.humanRow, r0, r1) && inRange(model.humanCol, c0, c1)) {
+            drawToken(g2, model.humanRow, model.humanCol, Color.GREEN, model.humanShields, scale, base);
+        }
+        if (inRange(model.cpuRow, r0, r1) && inRange(model.cpuCol, c0, c1)) {
+            drawToken(g2, model.cpuRow, model.cpuCol, Color.RED, model.cpuShields, scale, base);
+        }
 
-                // Draw gems - simple original cyan style
-                if (cell.gem) {
-                    g2.setColor(Color.CYAN);
-                    int[] xPoints = {x + size/2, x + size - 10, x + size/2, x + 10};
-                    int[] yPoints = {y + 10, y + size/2, y + size - 10, y + size/2};
-                    g2.fillPolygon(xPoints, yPoints, 4);
-                }
+        // Draw shield break animations
+        if (!shieldAnimations.isEmpty()) {
+            long start = System.nanoTime();
+            for (ShieldAnimation anim : shieldAnimations) {
+                if (anim.bounds().intersects(clip)) anim.draw(g2);
+            }
+            particles.frameDrawn(System.nanoTime() - start);
+        }
+    }
 
-                // Draw shields - simple original style
-                if (cell.shield) {
-                    g2.setColor(Color.BLUE);
-                    g2.fillOval(x + 12, y + 12, size - 24, size - 24);
-                    g2.setColor(Color.WHITE);
-                    g2.setFont(new Font("SansSerif", Font.BOLD, 14));
-                    FontMetrics fm = g2.getFontMetrics();
-                    g2.drawString("S", x + size/2 - fm.stringWidth("S")/2, y + size/2 + fm.getAscent()/2 - 2);
-                }
+    private static boolean inRange(int v, int lo, int hi) {
+        return v >= lo && v <= hi;
+    }
+
+    // Everything cached is drawn at one cell size; a zoom throws it all away
+    private void validateCaches() {
+        if (spriteSize == size) return;
+        Arrays.fill(backgroundSprites, null);
+        Arrays.fill(itemSprites, null);
+        gridSprite = null;
+        for (Chunk chunk : chunks.values()) chunk.flush();
+        chunks.clear();
+        spriteSize = size;
+        chunkCells = Math.max(1, CHUNK_PIXELS / size);
+    }
 
-                // Grid lines
-                g2.setColor(Color.GRAY);
-                g2.setStroke(new BasicStroke(1));
-                g2.drawRect(x, y, size, size);
+    private Chunk chunk(int cr, int cc) {
+        int key = cr * ((model.cols + chunkCells - 1) / chunkCells) + cc;
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new Chunk(cr * chunkCells, cc * chunkCells);
+            chunks.put(key, chunk);
+        }
+        chunk.frame = frame;
+        return chunk;
+    }
+
+    // Least recently drawn first; chunks in use by this frame always stay
+    private void evictChunks() {
+        Iterator<Chunk> it = chunks.values().iterator();
+        while (chunks.size() > MAX_CHUNKS && it.hasNext()) {
+            Chunk chunk = it.next();
+            if (chunk.frame != frame) {
+                chunk.flush();
+                it.remove();
             }
         }
+    }
 
-        // Draw shield bubbles for human - simple original style
-        if (model.humanShields > 0) {
-            g2.setColor(new Color(0, 191, 255, 128));
-            g2.fillOval(model.humanCol * size + 5, model.humanRow * size + 5, size - 10, size - 10);
-            g2.setColor(Color.BLACK);
-            g2.setFont(new Font("SansSerif", Font.BOLD, 12));
-            FontMetrics fm = g2.getFontMetrics();
-            String text = String.valueOf(model.humanShields);
-            g2.drawString(text, model.humanCol * size + size/2 - fm.stringWidth(text)/2, 
-                         model.humanRow * size + size/2 + fm.getAscent()/2 - 2);
+    // Keeps the item layer in step with the model: called for every changed cell
+    private void redrawItems(int row, int col) {
+        if (spriteSize != size) return;
+        int key = (row / chunkCells) * ((model.cols + chunkCells - 1) / chunkCells) + col / chunkCells;
+        Chunk chunk = chunks.get(key);
+        if (chunk != null) chunk.drawItems(row, col, true);
+    }
+
+    private BufferedImage backgroundSprite(int cell) {
+        int flags = cell & BACKGROUND_FLAGS;
+        BufferedImage sprite = backgroundSprites[flags];
+        if (sprite == null) backgroundSprites[flags] = sprite = renderSprite(flags, true);
+        return sprite;
+    }
+
+    // Null when the cell has no item
+    private BufferedImage itemSprite(int cell) {
+        int flags = cell & ITEM_FLAGS;
+        if (flags == 0) return null;
+        BufferedImage sprite = itemSprites[flags];
+        if (sprite == null) itemSprites[flags] = sprite = renderSprite(flags, false);
+        return sprite;
+    }
+
+    // Grid lines around one cell, on its four edges: one pixel wider than the cell
+    private BufferedImage gridSprite() {
+        if (gridSprite == null) {
+            gridSprite = createImage(size + 1, size + 1, false);
+            Graphics2D g2 = spriteGraphics(gridSprite);
+            drawGrid(g2);
+            g2.dispose();
         }
+        return gridSprite;
+    }
+
+    // Backgrounds are opaque, items are drawn on a transparent cell
+    private BufferedImage renderSprite(int flags, boolean background) {
+        BufferedImage img = createImage(size, size, background);
+        Graphics2D g2 = spriteGraphics(img);
+        if (size < DETAIL_CELL) drawFlatCell(g2, flags);
+        else if (background) drawBackground(g2, flags);
+        else drawItems(g2, flags);
+        g2.dispose();
+        return img;
+    }
+
+    // Graphics for cell art: detailed sizes are drawn in BASE_CELL space and scaled
+    private Graphics2D spriteGraphics(BufferedImage img) {
+        Graphics2D g2 = img.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        if (size >= DETAIL_CELL) g2.scale(size / (double) BASE_CELL, size / (double) BASE_CELL);
+        return g2;
+    }
 
-        // Draw shield bubbles for CPU - simple original style
-        if (model.cpuShields > 0) {
-            g2.setColor(new Color(0, 191, 255, 128));
-            g2.fillOval(model.cpuCol * size + 5, model.cpuRow * size + 5, size - 10, size - 10);
+    private BufferedImage createImage(int width, int height, boolean opaque) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        return gc != null
+            ? gc.createCompatibleImage(width, height, opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT)
+            : new BufferedImage(width, height, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+
+    // Static part of a cell at BASE_CELL size, origin at its top-left corner
+    private void drawBackground(Graphics2D g2, int cell) {
+        int size = BASE_CELL;
+        int x = 0;
+        int y = 0;
+
+        // Background - simple original style
+        g2.setColor((cell & Cell.WALL) != 0 ? Color.DARK_GRAY : Color.LIGHT_GRAY);
+        g2.fillRect(x, y, size, size);
+
+        // Draw stop markers
+        if ((cell & Cell.STOP) != 0) {
             g2.setColor(Color.BLACK);
-            g2.setFont(new Font("SansSerif", Font.BOLD, 12));
-            FontMetrics fm = g2.getFontMetrics();
-            String text = String.valueOf(model.cpuShields);
-            g2.drawString(text, model.cpuCol * size + size/2 - fm.stringWidth(text)/2,
-                         model.cpuRow * size + size/2 + fm.getAscent()/2 - 2);
+            g2.setStroke(new BasicStroke(2));
+            g2.drawOval(x + 6, y + 6, size - 12, size - 12);
         }
+    }
 
-        // Draw players - simple original style
-        g2.setColor(Color.GREEN);
-        g2.fillOval(model.humanCol * size + 10, model.humanRow * size + 10, size - 20, size - 20);
+    private void drawGrid(Graphics2D g2) {
+        g2.setColor(Color.GRAY);
+        g2.setStroke(new BasicStroke(1));
+        g2.drawRect(0, 0, BASE_CELL, BASE_CELL);
+    }
 
-        g2.setColor(Color.RED);
-        g2.fillOval(model.cpuCol * size + 10, model.cpuRow * size + 10, size - 20, size - 20);
+    // Item on a transparent cell at BASE_CELL size
+    private void drawItems(Graphics2D g2, int cell) {
+        int size = BASE_CELL;
+        int x = 0;
+        int y = 0;
 
-        // Draw shield break animations
-        for (ShieldAnimation anim : shieldAnimations) {
-            anim.draw(g2);
+        // Draw mines - enhanced bomb style
+        if ((cell & Cell.MINE) != 0) {
+            int centerX = x + size/2;
+            int centerY = y + size/2 + 1;
+            int bombSize = size - 20;
+            
+            // Shadow
+            g2.setColor(new Color(0, 0, 0, 60));
+            g2.fillOval(centerX - bombSize/2 + 2, centerY - bombSize/2 + 3, bombSize, bombSize);
+            
+            // Bomb body - dark sphere with gradient
+            RadialGradientPaint rgp = new RadialGradientPaint(
+                centerX - 4, centerY - 4, bombSize/2,
+                new float[]{0.0f, 0.7f, 1.0f},
+                new Color[]{new Color(50, 50, 55), new Color(20, 20, 25), new Color(10, 10, 15)}
+            );
+            g2.setPaint(rgp);
+            g2.fillOval(centerX - bombSize/2, centerY - bombSize/2, bombSize, bombSize);
+            
+            // Highlight
+            g2.setColor(new Color(255, 255, 255, 100));
+            g2.fillOval(centerX - bombSize/2 + 4, centerY - bombSize/2 + 3, 7, 7);
+            
+            // Fuse
+            g2.setColor(new Color(40, 40, 45));
+            g2.setStroke(new BasicStroke(2f));
+            g2.drawLine(centerX - 1, centerY - bombSize/2, centerX - 4, centerY - bombSize/2 - 7);
+            
+            // Spark on fuse
+            g2.setColor(new Color(255, 200, 50));
+            g2.fillOval(centerX - 7, centerY - bombSize/2 - 10, 5, 5);
+            g2.setColor(new Color(255, 255, 100));
+            g2.fillOval(centerX - 6, centerY - bombSize/2 - 9, 3, 3);
+        }
+
+        // Draw gems - simple original cyan style
+        if ((cell & Cell.GEM) != 0) {
+            g2.setColor(Color.CYAN);
+            int[] xPoints = {x + size/2, x + size - 10, x + size/2, x + 10};
+            int[] yPoints = {y + 10, y + size/2, y + size - 10, y + size/2};
+            g2.fillPolygon(xPoints, yPoints, 4);
+        }
+
+        // Draw shields - simple original style
+        if ((cell & Cell.SHIELD) != 0) {
+            g2.setColor(Color.BLUE);
+            g2.fillOval(x + 12, y + 12, size - 24, size - 24);
+            g2.setColor(Color.WHITE);
+            g2.setFont(new Font("SansSerif", Font.BOLD, 14));
+            FontMetrics fm = g2.getFontMetrics();
+            g2.drawString("S", x + size/2 - fm.stringWidth("S")/2, y + size/2 + fm.getAscent()/2 - 2);
         }
     }
 
-    private void drawPlayer(Graphics2D g2, int x, int y, Color color, String label) {
-        int centerX = x + size/2;
-        int centerY = y + size/2;
-        int playerSize = size - 16;
-        
-        // Shadow
-        g2.setColor(new Color(0, 0, 0, 70));
-        g2.fillOval(centerX - playerSize/2 + 2, centerY - playerSize/2 + 4, playerSize, playerSize);
-        
-        // Outer glow rings
-        for (int i = 3; i > 0; i--) {
-            int glowAlpha = 25 * i;
-            g2.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), glowAlpha));
-            int glowSize = playerSize + i * 6;
-            g2.fillOval(centerX - glowSize/2, centerY - glowSize/2, glowSize, glowSize);
+    // Zoomed-out cell: background (layer flags only) or a block in the item's colour
+    private void drawFlatCell(Graphics2D g2, int cell) {
+        int x = 0;
+        int y = 0;
+        if ((cell & ITEM_FLAGS) == 0) {
+            g2.setColor((cell & Cell.WALL) != 0 ? Color.DARK_GRAY : Color.LIGHT_GRAY);
+            g2.fillRect(x, y, size, size);
+        }
+
+        Color item = (cell & Cell.MINE) != 0 ? Color.BLACK
+                   : (cell & Cell.GEM) != 0 ? Color.CYAN
+                   : (cell & Cell.SHIELD) != 0 ? Color.BLUE
+                   : (cell & Cell.STOP) != 0 ? Color.GRAY : null;
+        if (item != null) {
+            int inset = size / 4;
+            g2.setColor(item);
+            g2.fillRect(x + inset, y + inset, size - 2 * inset, size - 2 * inset);
         }
-        
-        // Main circle with radial gradient
-        RadialGradientPaint rgp = new RadialGradientPaint(
-            centerX - 6, centerY - 6, playerSize/2,
-            new float[]{0.0f, 0.6f, 1.0f},
-            new Color[]{color.brighter().brighter(), color, color.darker()}
-        );
-        g2.setPaint(rgp);
-        g2.fillOval(centerX - playerSize/2, centerY - playerSize/2, playerSize, playerSize);
-        
-        // Glossy highlight
-        g2.setColor(new Color(255, 255, 255, 180));
-        g2.fillOval(centerX - playerSize/2 + 5, centerY - playerSize/2 + 4, 12, 12);
-        
-        // Label with shadow
-        g2.setFont(new Font("Arial", Font.BOLD, 15));
-        FontMetrics fm = g2.getFontMetrics();
-        int textX = centerX - fm.stringWidth(label)/2;
-        int textY = centerY + fm.getAscent()/2 - 1;
-        
-        g2.setColor(new Color(0, 0, 0, 120));
-        g2.drawString(label, textX + 1, textY + 1);
-        g2.setColor(Color.WHITE);
-        g2.drawString(label, textX, textY);
     }
 
-    private void drawShieldBubble(Graphics2D g2, int x, int y, Color color, int count) {
-        int centerX = x + size/2;
-        int centerY = y + size/2;
-        int bubbleSize = size - 8;
-        
-        // Outer glow
-        for (int i = 4; i > 0; i--) {
-            int alpha = 15 * i;
-            g2.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha));
-            int glowSize = bubbleSize + i * 5;
-            g2.fillOval(centerX - glowSize/2, centerY - glowSize/2, glowSize, glowSize);
+    // Player token with its shield bubble - simple original style
+    private void drawToken(Graphics2D g2, int row, int col, Color color, int shields,
+                           double scale, AffineTransform base) {
+        if (size < DETAIL_CELL) {
+            g2.setColor(color);
+            g2.fillRect(col * size, row * size, size, size);
+            return;
         }
-        
-        // Main bubble with radial gradient
-        RadialGradientPaint rgp = new RadialGradientPaint(
-            centerX - 8, centerY - 8, bubbleSize/2,
-            new float[]{0.0f, 0.7f, 1.0f},
-            new Color[]{
-                new Color(150, 220, 255, 100),
-                new Color(100, 200, 255, 80),
-                new Color(50, 150, 255, 60)
-            }
-        );
-        g2.setPaint(rgp);
-        g2.fillOval(centerX - bubbleSize/2, centerY - bubbleSize/2, bubbleSize, bubbleSize);
-        
-        // Border
-        g2.setColor(new Color(100, 200, 255, 150));
-        g2.setStroke(new BasicStroke(2.5f));
-        g2.drawOval(centerX - bubbleSize/2, centerY - bubbleSize/2, bubbleSize, bubbleSize);
-        
-        // Glossy shine
-        g2.setColor(new Color(255, 255, 255, 150));
-        g2.fillArc(centerX - bubbleSize/2 + 6, centerY - bubbleSize/2 + 6, 
-                   bubbleSize - 20, bubbleSize - 20, 45, 120);
-        
-        // Shield count
-        g2.setFont(new Font("Arial", Font.BOLD, 17));
-        FontMetrics fm = g2.getFontMetrics();
-        String text = String.valueOf(count);
-        int textX = centerX - fm.stringWidth(text)/2;
-        int textY = centerY + fm.getAscent()/2 - 1;
-        
-        g2.setColor(new Color(0, 0, 0, 150));
-        g2.drawString(text, textX + 1, textY + 1);
-        g2.setColor(new Color(255, 255, 255));
-        g2.drawString(text, textX, textY);
+        g2.translate(col * size, row * size);
+        g2.scale(scale, scale);
+        int size = BASE_CELL;
+
+        if (shields > 0) {
+            g2.setColor(SHIELD_BUBBLE);
+            g2.fillOval(5, 5, size - 10, size - 10);
+            g2.setColor(Color.BLACK);
+            g2.setFont(SHIELD_COUNT_FONT);
+            FontMetrics fm = g2.getFontMetrics();
+            String text = String.valueOf(shields);
+            g2.drawString(text, size/2 - fm.stringWidth(text)/2, size/2 + fm.getAscent()/2 - 2);
+        }
+
+        g2.setColor(color);
+        g2.fillOval(10, 10, size - 20, size - 20);
+        g2.setTransform(base);
     }
 
     public int row(int y) { return y / size; }
     public int col(int x) { return x / size; }
 
-    // Shield break animation class
+    // Cached layers for a square block of cells. The layers are kept in BufferedImages,
+    // which never lose their contents, and flattened into an opaque VolatileImage that the
+    // pipeline can keep in video memory for the blit. The VolatileImage is rebuilt from
+    // the layers when an item changes or when the pipeline reports its contents lost.
+    private class Chunk {
+        final int row0, col0;
+        final BufferedImage background, items, grid;
+        int frame;
+        private VolatileImage screen;
+        private boolean stale = true;
+
+        Chunk(int row0, int col0) {
+            this.row0 = row0;
+            this.col0 = col0;
+            int rows = Math.min(chunkCells, model.rows - row0);
+            int cols = Math.min(chunkCells, model.cols - col0);
+            background = createImage(cols * size, rows * size, true);
+            items = createImage(cols * size, rows * size, false);
+            // One spare pixel for the lines on the last row and column
+            grid = size >= DETAIL_CELL ? createImage(cols * size + 1, rows * size + 1, false) : null;
+
+            Graphics2D bg = background.createGraphics();
+            Graphics2D lines = grid != null ? grid.createGraphics() : null;
+            // Each cell's lines replace what its neighbours drew on their shared edge
+            if (lines != null) lines.setComposite(AlphaComposite.Src);
+            for (int r = row0; r < row0 + rows; r++) {
+                for (int c = col0; c < col0 + cols; c++) {
+                    int x = (c - col0) * size;
+                    int y = (r - row0) * size;
+                    bg.drawImage(backgroundSprite(model.cellFlags(r, c)), x, y, null);
+                    if (lines != null) lines.drawImage(gridSprite(), x, y, null);
+                    drawItems(r, c, false);
+                }
+            }
+            bg.dispose();
+            if (lines != null) lines.dispose();
+        }
+
+        // Puts the chunk on g2 with its top-left corner at x, y
+        void draw(Graphics2D g2, GraphicsConfiguration gc, int x, int y) {
+            if (gc == null) {
+                // Not on a screen yet (no configuration to make the VolatileImage for)
+                drawLayers(g2, x, y);
+                return;
+            }
+            do {
+                int status = screen == null ? VolatileImage.IMAGE_INCOMPATIBLE : screen.validate(gc);
+                if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                    // First use, or the window moved to a screen with another configuration
+                    flush();
+                    screen = gc.createCompatibleVolatileImage(background.getWidth(), background.getHeight(),
+                                                              Transparency.OPAQUE);
+                    stale = true;
+                } else if (status == VolatileImage.IMAGE_RESTORED) {
+                    stale = true;
+                }
+                if (stale) {
+                    Graphics2D vg = screen.createGraphics();
+                    drawLayers(vg, 0, 0);
+                    vg.dispose();
+                    stale = false;
+                }
+                g2.drawImage(screen, x, y, null);
+            } while (screen.contentsLost());
+        }
+
+        // The grid's spare pixel row and column fall outside the chunk; the neighbouring
+        // chunk draws the same line there, and the board's last one is outside the panel
+        private void drawLayers(Graphics2D g2, int x, int y) {
+            g2.drawImage(background, x, y, null);
+            g2.drawImage(items, x, y, null);
+            if (grid != null) g2.drawImage(grid, x, y, null);
+        }
+
+        // Releases the VolatileImage's video memory; the next draw makes a new one
+        void flush() {
+            if (screen != null) {
+                screen.flush();
+                screen = null;
+            }
+        }
+
+        // Draws one cell of the item layer, clearing what was there first if asked
+        void drawItems(int row, int col, boolean clear) {
+            BufferedImage sprite = itemSprite(model.cellFlags(row, col));
+            if (sprite == null && !clear) return;
+            stale = true;
+            Graphics2D g2 = items.createGraphics();
+            int x = (col - col0) * size;
+            int y = (row - row0) * size;
+            if (clear) {
+                g2.setComposite(AlphaComposite.Clear);
+                g2.fillRect(x, y, size, size);
+                g2.setComposite(AlphaComposite.SrcOver);
+            }
+            if (sprite != null) g2.drawImage(sprite, x, y, null);
+            g2.dispose();
+        }
+    }
+
+    // Shield break animation: a fading centre flash, three expanding rings and a burst of
+    // particles from the panel's pool. Everything it draws is a function of its frame.
     private class ShieldAnimation {
-        private int x, y;
+        private final int x, y;
         private int frame = 0;
-        private final int maxFrames = 30;
-        private java.util.List<Particle> particles = new ArrayList<>();
-        private java.util.List<ExplosionRing> rings = new ArrayList<>();
 
         public ShieldAnimation(int x, int y) {
             this.x = x;
             this.y = y;
-            
-            // Create explosive particles in all directions
+
+            // Explosive particles in all directions, then some random ones
             for (int i = 0; i < 20; i++) {
-                double angle = (Math.PI * 2 * i) / 20;
-                particles.add(new Particle(x, y, angle, 1));
+                particles.spawn(this, x, y, Math.PI * 2 * i / 20, 1);
             }
-            
-            // Add some random particles
-            for (int i = 0; i < 15; i++) {
-                double angle = Math.random() * Math.PI * 2;
-                particles.add(new Particle(x, y, angle, 0.7 + Math.random() * 0.6));
-            }
-            
-            // Create expanding rings
-            for (int i = 0; i < 3; i++) {
-                rings.add(new ExplosionRing(x, y, i * 5));
+            for (int i = 20; i < ANIM_PARTICLES; i++) {
+                particles.spawn(this, x, y, Math.random() * Math.PI * 2, 0.7 + Math.random() * 0.6);
             }
         }
 
         public void update() {
             frame++;
-            for (Particle p : particles) {
-                p.update();
-            }
-            for (ExplosionRing r : rings) {
-                r.update();
-            }
+            particles.update(this);
+            if (isFinished()) particles.release(this);
         }
 
         public boolean isFinished() {
-            return frame >= maxFrames;
+            return frame >= ANIM_FRAMES;
+        }
+
+        private int ringRadius(int ring) {
+            return 5 + 3 * Math.max(0, frame - ring * RING_DELAY);
+        }
+
+        // Everything the current frame paints: centre flash, rings and particle glows
+        public Rectangle bounds() {
+            int reach = Math.max(30, ringRadius(0) + 3);
+            Rectangle r = new Rectangle(x - reach, y - reach, 2 * reach + 1, 2 * reach + 1);
+            particles.addBounds(this, r);
+            return r;
         }
 
         public void draw(Graphics2D g2) {
-            // Draw rings first (behind particles)
-            for (ExplosionRing r : rings) {
-                r.draw(g2);
+            // Rings first (behind particles)
+            for (int ring = 0; ring < RINGS; ring++) {
+                if (frame <= ring * RING_DELAY) continue;
+                int radius = ringRadius(ring);
+                g2.setColor(RING_OUTER[ring][frame]);
+                g2.setStroke(RING_OUTER_STROKE);
+                g2.drawOval(x - radius, y - radius, radius * 2, radius * 2);
+                g2.setColor(RING_INNER[ring][frame]);
+                g2.setStroke(RING_INNER_STROKE);
+                g2.drawOval(x - radius + 2, y - radius + 2, radius * 2 - 4, radius * 2 - 4);
             }
-            
-            // Draw center flash
-            if (frame < 8) {
-                int flashAlpha = (int)(200 * (1 - frame/8.0));
+
+            // Centre flash
+            if (frame < FLASH_FRAMES) {
                 int flashSize = 20 + frame * 4;
-                
-                g2.setColor(new Color(255, 200, 100, flashAlpha));
+                g2.setColor(FLASH_OUTER[frame]);
                 g2.fillOval(x - flashSize/2, y - flashSize/2, flashSize, flashSize);
-                
-                g2.setColor(new Color(255, 255, 200, flashAlpha/2));
+                g2.setColor(FLASH_INNER[frame]);
                 g2.fillOval(x - flashSize/4, y - flashSize/4, flashSize/2, flashSize/2);
             }
-            
-            // Draw particles
-            for (Particle p : particles) {
-                p.draw(g2);
+
+            particles.draw(this, g2, frame);
+        }
+    }
+
+    private static final int ANIM_FRAMES = 30;
+    private static final int ANIM_PARTICLES = 35;
+    private static final int RINGS = 3;
+    private static final int RING_DELAY = 5;
+    private static final int FLASH_FRAMES = 8;
+    private static final BasicStroke RING_OUTER_STROKE = new BasicStroke(4);
+    private static final BasicStroke RING_INNER_STROKE = new BasicStroke(2);
+
+    // Animation colours for every frame, so drawing never creates a Color
+    private static final Color[] FLASH_OUTER = new Color[FLASH_FRAMES];
+    private static final Color[] FLASH_INNER = new Color[FLASH_FRAMES];
+    private static final Color[][] RING_OUTER = new Color[RINGS][ANIM_FRAMES + 1];
+    private static final Color[][] RING_INNER = new Color[RINGS][ANIM_FRAMES + 1];
+
+    static {
+        for (int f = 0; f < FLASH_FRAMES; f++) {
+            int alpha = (int) (200 * (1 - f / (double) FLASH_FRAMES));
+            FLASH_OUTER[f] = new Color(255, 200, 100, alpha);
+            FLASH_INNER[f] = new Color(255, 255, 200, alpha / 2);
+        }
+        for (int ring = 0; ring < RINGS; ring++) {
+            int delay = ring * RING_DELAY;
+            for (int f = 0; f <= ANIM_FRAMES; f++) {
+                int alpha = (int) (180 * (1 - (double) (f - delay) / (ANIM_FRAMES - delay)));
+                alpha = Math.max(0, Math.min(180, alpha));
+                RING_OUTER[ring][f] = new Color(255, 200, 100, alpha / 2);
+                RING_INNER[ring][f] = new Color(255, 255, 200, alpha / 3);
             }
         }
+    }
 
-        private class Particle {
-            double x, y, vx, vy;
-            int size;
-            Color color;
-            double speedMult;
-
-            public Particle(int startX, int startY, double angle, double speedMult) {
-                this.x = startX;
-                this.y = startY;
-                this.speedMult = speedMult;
-                double speed = (3 + Math.random() * 3) * speedMult;
-                this.vx = Math.cos(angle) * speed;
-                this.vy = Math.sin(angle) * speed;
-                this.size = 3 + (int)(Math.random() * 5);
-                
-                // Vary colors for explosion effect
-                double colorRand = Math.random();
-                if (colorRand < 0.4) {
-                    this.color = new Color(255, 150, 50); // Orange
-                } else if (colorRand < 0.7) {
-                    this.color = new Color(255, 200, 100); // Yellow
-                } else {
-                    this.color = new Color(100, 200, 255); // Blue (shield color)
+    // Particles of every running animation, as parallel arrays of a fixed capacity.
+    // Slots are claimed at spawn and freed when their animation ends; once MAX_LIVE are
+    // in use new bursts get fewer particles. If drawing them takes longer than
+    // BUDGET_NANOS a frame, later frames draw only the particle cores until it recovers.
+    private static final class ParticlePool {
+        private static final int MAX_LIVE = 256;
+        private static final long BUDGET_NANOS = 4_000_000L;
+
+        private static final Color[] PALETTE = {
+            new Color(255, 150, 50),   // Orange
+            new Color(255, 200, 100),  // Yellow
+            new Color(100, 200, 255),  // Blue (shield color)
+        };
+        // Per palette colour and frame: glow and core; plus the white centre per frame
+        private static final Color[][] GLOW = new Color[PALETTE.length][ANIM_FRAMES + 1];
+        private static final Color[][] CORE = new Color[PALETTE.length][ANIM_FRAMES + 1];
+        private static final Color[] CENTRE = new Color[ANIM_FRAMES + 1];
+
+        static {
+            for (int f = 0; f <= ANIM_FRAMES; f++) {
+                int alpha = (int) (255 * (1 - (double) f / ANIM_FRAMES));
+                alpha = Math.max(0, Math.min(255, alpha));
+                for (int k = 0; k < PALETTE.length; k++) {
+                    Color c = PALETTE[k];
+                    GLOW[k][f] = new Color(c.getRed(), c.getGreen(), c.getBlue(), alpha / 3);
+                    CORE[k][f] = new Color(c.getRed(), c.getGreen(), c.getBlue(), alpha);
                 }
+                CENTRE[f] = new Color(255, 255, 255, alpha / 2);
             }
+        }
+
+        private final float[] x = new float[MAX_LIVE], y = new float[MAX_LIVE];
+        private final float[] vx = new float[MAX_LIVE], vy = new float[MAX_LIVE];
+        private final byte[] size = new byte[MAX_LIVE];
+        private final byte[] colour = new byte[MAX_LIVE];
+        private final ShieldAnimation[] owner = new ShieldAnimation[MAX_LIVE];
+        private int live;
+        private int end;   // slots at or past end are all free
+
+        private boolean coresOnly;
+
+        void spawn(ShieldAnimation anim, int startX, int startY, double angle, double speedMult) {
+            if (live == MAX_LIVE) return;
+            int i = 0;
+            while (owner[i] != null) i++;
+            double speed = (3 + Math.random() * 3) * speedMult;
+            x[i] = startX;
+            y[i] = startY;
+            vx[i] = (float) (Math.cos(angle) * speed);
+            vy[i] = (float) (Math.sin(angle) * speed);
+            size[i] = (byte) (3 + (int) (Math.random() * 5));
+            double colourRand = Math.random();
+            colour[i] = (byte) (colourRand < 0.4 ? 0 : colourRand < 0.7 ? 1 : 2);
+            owner[i] = anim;
+            live++;
+            end = Math.max(end, i + 1);
+        }
 
-            public void update() {
-                x += vx;
-                y += vy;
-                vx *= 0.92;
-                vy *= 0.92;
-                vy += 0.15; // Gravity
+        void update(ShieldAnimation anim) {
+            for (int i = 0; i < end; i++) {
+                if (owner[i] != anim) continue;
+                x[i] += vx[i];
+                y[i] += vy[i];
+                vx[i] *= 0.92f;
+                vy[i] *= 0.92f;
+                vy[i] += 0.15f; // Gravity
             }
+        }
 
-            public void draw(Graphics2D g2) {
-                int alpha = (int)(255 * (1 - (double)frame / maxFrames));
-                alpha = Math.max(0, Math.min(255, alpha));
-                
-                // Particle glow
-                int glowSize = size + 4;
-                g2.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha/3));
-                g2.fillOval((int)x - glowSize/2, (int)y - glowSize/2, glowSize, glowSize);
-                
-                // Particle core
-                g2.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha));
-                g2.fillOval((int)x - size/2, (int)y - size/2, size, size);
-                
-                // Bright center
-                g2.setColor(new Color(255, 255, 255, alpha/2));
-                g2.fillOval((int)x - size/4, (int)y - size/4, size/2, size/2);
+        void release(ShieldAnimation anim) {
+            for (int i = 0; i < end; i++) {
+                if (owner[i] == anim) {
+                    owner[i] = null;
+                    live--;
+                }
             }
+            while (end > 0 && owner[end - 1] == null) end--;
         }
-        
-        private class ExplosionRing {
-            int x, y;
-            int radius;
-            int delay;
-            
-            public ExplosionRing(int x, int y, int delay) {
-                this.x = x;
-                this.y = y;
-                this.radius = 5;
-                this.delay = delay;
+
+        // Grows r to cover the glow of each of anim's particles
+        void addBounds(ShieldAnimation anim, Rectangle r) {
+            for (int i = 0; i < end; i++) {
+                if (owner[i] != anim) continue;
+                int reach = (size[i] + 4) / 2 + 1;
+                r.add((int) x[i] - reach, (int) y[i] - reach);
+                r.add((int) x[i] + reach + 1, (int) y[i] + reach + 1);
             }
-            
-            public void update() {
-                if (frame > delay) {
-                    radius += 3;
+        }
+
+        void draw(ShieldAnimation anim, Graphics2D g2, int frame) {
+            for (int i = 0; i < end; i++) {
+                if (owner[i] != anim) continue;
+                int px = (int) x[i], py = (int) y[i], s = size[i];
+                if (!coresOnly) {
+                    int glowSize = s + 4;
+                    g2.setColor(GLOW[colour[i]][frame]);
+                    g2.fillOval(px - glowSize/2, py - glowSize/2, glowSize, glowSize);
                 }
-            }
-            
-            public void draw(Graphics2D g2) {
-                if (frame <= delay) return;
-                
-                int effectiveFrame = frame - delay;
-                int alpha = (int)(180 * (1 - (double)effectiveFrame / (maxFrames - delay)));
-                alpha = Math.max(0, Math.min(180, alpha));
-                
-                if (alpha > 0) {
-                    g2.setColor(new Color(255, 200, 100, alpha/2));
-                    g2.setStroke(new BasicStroke(4));
-                    g2.drawOval(x - radius, y - radius, radius * 2, radius * 2);
-                    
-                    g2.setColor(new Color(255, 255, 200, alpha/3));
-                    g2.setStroke(new BasicStroke(2));
-                    g2.drawOval(x - radius + 2, y - radius + 2, radius * 2 - 4, radius * 2 - 4);
+                g2.setColor(CORE[colour[i]][frame]);
+                g2.fillOval(px - s/2, py - s/2, s, s);
+                if (!coresOnly) {
+                    g2.setColor(CENTRE[frame]);
+                    g2.fillOval(px - s/4, py - s/4, s/2, s/2);
                 }
             }
         }
+
+        // Called with the time one paint spent on animations
+        void frameDrawn(long nanos) {
+            if (nanos > BUDGET_NANOS) coresOnly = true;
+            else if (nanos < BUDGET_NANOS / 4) coresOnly = false;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,55 @@
 import java.awt.*;
+import java.awt.datatransfer.StringSelection;
 import java.awt.event.*;
+import java.util.concurrent.*;
 import javax.swing.*;
 import javax.swing.border.*;
 
 public class InertiaGameFrame extends JFrame {
 
+    private static final long serialVersionUID = 1L;
+
+    // CPU searches run here instead of on the EDT; daemon so it never keeps the JVM alive
+    private static final ExecutorService CPU_SEARCH = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "cpu-search");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public static final int DEFAULT_BOARD_SIZE = 12;
+    public static final int MIN_BOARD_SIZE = 8;
+    public static final int MAX_BOARD_SIZE = 1000;
+    private static final String[] BOARD_SIZES = {"12", "16", "24", "32", "64", "128", "256", "512", "1000"};
+
+    // Largest board viewport the window opens with; bigger boards scroll
+    private static final int MAX_VIEW = 720;
+
     private final BoardModel model;
     private final GridPanel grid;
     private final Difficulty difficulty;
+    private final int boardSize;
+    private final MoveLog moveLog;
     private JPanel mainPanel;
     private JLabel statusLabel;
     private JPanel scorePanel;
+    private Future<?> cpuTurn;
+    private boolean cpuThinking = false;
 
     public InertiaGameFrame(Difficulty d) {
+        this(d, DEFAULT_BOARD_SIZE);
+    }
+
+    public InertiaGameFrame(Difficulty d, int boardSize) {
+        this(new BoardModel(boardSize, boardSize, d), d);
+    }
+
+    private InertiaGameFrame(BoardModel model, Difficulty d) {
         super("Inertia Game - " + d);
 
         this.difficulty = d;
-        this.model = new BoardModel(12, 12, d);
+        this.boardSize = model.rows;
+        this.model = model;
+        this.moveLog = new MoveLog(model.seed(), model.rows, model.cols, d);
         this.grid = new GridPanel(model);
         
         // Connect shield animation
@@ -24,6 +57,9 @@ public class InertiaGameFrame extends JFrame {
             grid.triggerShieldBreak(row, col);
         });
 
+        // Moves repaint only the cells they touched
+        model.setCellChangeListener(grid::repaintCell);
+
         setupUI();
         
         setMinimumSize(new Dimension(700, 700));
@@ -33,7 +69,7 @@ public class InertiaGameFrame extends JFrame {
         grid.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                if (model.gameOver) return;
+                if (model.gameOver || cpuThinking) return;
 
                 Direction dir = Direction.fromClick(
                         model.humanRow,
@@ -49,22 +85,21 @@ public class InertiaGameFrame extends JFrame {
                 int startShields = model.humanShields;
 
                 model.move(true, dir);
-                
-                if (model.gameOver) {
-                    grid.repaint();
-                    updateScorePanel();
-                    endGame();
-                    return;
-                }
 
                 boolean posChanged = (model.humanRow != startRow || model.humanCol != startCol);
                 boolean shieldUsed = (model.humanShields < startShields);
 
-                if (!posChanged && !shieldUsed) {
+                if (!model.gameOver && !posChanged && !shieldUsed) {
                     return; 
                 }
+                moveLog.record(dir);
+                
+                if (model.gameOver) {
+                    updateScorePanel();
+                    endGame();
+                    return;
+                }
 
-                grid.repaint();
                 updateScorePanel();
                 model.checkEndGame();
                 if (model.gameOver) {
@@ -72,26 +107,107 @@ public class InertiaGameFrame extends JFrame {
                     return;
                 }
 
-                SwingUtilities.invokeLater(() -> {
-                    if (model.gameOver) return;
+                startCpuTurn();
+            }
+        });
 
-                    Direction cpuDir = Greedy.choose(model, difficulty);
-                    if (cpuDir != null) {
-                        model.move(false, cpuDir);
-                    }
-                    
-                    grid.repaint();
-                    updateScorePanel();
-                    model.checkEndGame();
+        setVisible(true);
+    }
 
-                    if (model.gameOver) {
-                        endGame();
-                    }
-                });
+    // Builds the board on CPU_SEARCH, then opens its frame on the EDT; a big board takes a
+    // while to generate and would otherwise freeze the screen. Callers dispose their own
+    // window first, which also cancels any CPU turn still queued ahead of the build.
+    private static void open(Difficulty d, int boardSize) {
+        CPU_SEARCH.submit(() -> {
+            BoardModel model;
+            try {
+                model = new BoardModel(boardSize, boardSize, d);
+            } catch (RuntimeException | Error e) {
+                SwingUtilities.invokeLater(() -> failOpen(boardSize, e));
+                return;
             }
+            SwingUtilities.invokeLater(() -> new InertiaGameFrame(model, d));
         });
+    }
 
-        setVisible(true);
+    // The board could not be built (e.g. out of memory): say so and go back to the menu
+    private static void failOpen(int boardSize, Throwable error) {
+        JOptionPane.showMessageDialog(null,
+            "Could not create a " + boardSize + "x" + boardSize + " board (" + error.getClass().getSimpleName() + ")",
+            "Inertia Game", JOptionPane.ERROR_MESSAGE);
+        menu();
+    }
+
+    // Searches on a snapshot in the background, then applies the move back on the EDT.
+    // While the CPU is thinking the EDT only reads the board (clicks are ignored), so the
+    // search thread may catch the model's AI caches up and snapshot it; the snapshot then
+    // shares the caches instead of rebuilding them, and big boards never block the EDT.
+    private void startCpuTurn() {
+        setCpuThinking(true);
+
+        cpuTurn = CPU_SEARCH.submit(() -> {
+            Direction cpuDir;
+            try {
+                Greedy.prepare(model, difficulty);
+                BoardModel snapshot = model.snapshot();
+                cpuDir = Greedy.choose(snapshot, difficulty);
+            } catch (RuntimeException | Error e) {
+                // The Future would swallow this and leave the game waiting for the CPU forever
+                if (Thread.currentThread().isInterrupted()) return;
+                SwingUtilities.invokeLater(() -> failCpuTurn(e));
+                return;
+            }
+            if (Thread.currentThread().isInterrupted()) return;
+            SwingUtilities.invokeLater(() -> finishCpuTurn(cpuDir));
+        });
+    }
+
+    // The search failed (e.g. out of memory on a big board): play the first safe move, if
+    // any, and say why in the status line
+    private void failCpuTurn(Throwable error) {
+        if (!isDisplayable() || model.gameOver) return;
+        int safe = model.safeDirections(model.cpuRow, model.cpuCol, model.cpuShields);
+        finishCpuTurn(safe == 0 ? null : Direction.ALL[Integer.numberOfTrailingZeros(safe)]);
+        if (!model.gameOver) {
+            String reason = error.getClass().getSimpleName()
+                          + (error.getMessage() != null ? ": " + error.getMessage() : "");
+            statusLabel.setText(statusText() + "  |  CPU search failed (" + reason + "), played a fallback move");
+        }
+    }
+
+    private void finishCpuTurn(Direction cpuDir) {
+        if (!isDisplayable() || model.gameOver) return;
+        setCpuThinking(false);
+        moveLog.record(cpuDir);
+
+        if (cpuDir != null) {
+            model.move(false, cpuDir);
+        }
+
+        updateScorePanel();
+        model.checkEndGame();
+
+        if (model.gameOver) {
+            endGame();
+        }
+    }
+
+    private void setCpuThinking(boolean thinking) {
+        cpuThinking = thinking;
+        statusLabel.setText(thinking ? statusText() + "  |  CPU is thinking..." : statusText());
+        grid.setCursor(Cursor.getPredefinedCursor(thinking ? Cursor.WAIT_CURSOR : Cursor.DEFAULT_CURSOR));
+    }
+
+    private String statusText() {
+        return "Difficulty: " + difficulty + "  |  Board: " + model.rows + "x" + model.cols
+             + "  |  Seed: " + model.seed();
+    }
+
+    // Every way out of a game (New Game, Main Menu, dialogs) disposes the frame
+    @Override
+    public void dispose() {
+        if (cpuTurn != null) cpuTurn.cancel(true);
+        super.dispose();
     }
 
     private void setupUI() {
@@ -107,7 +223,7 @@ public class InertiaGameFrame extends JFrame {
         titleLabel.setForeground(new Color(50, 50, 80));
         topPanel.add(titleLabel, BorderLayout.NORTH);
 
-        statusLabel = new JLabel("Difficulty: " + difficulty, SwingConstants.CENTER);
+        statusLabel = new JLabel(statusText(), SwingConstants.CENTER);
         statusLabel.setFont(new Font("Arial", Font.PLAIN, 14));
         statusLabel.setForeground(new Color(100, 100, 120));
         topPanel.add(statusLabel, BorderLayout.CENTER);
@@ -115,31 +231,41 @@ public class InertiaGameFrame extends JFrame {
         scorePanel = createScorePanel();
         topPanel.add(scorePanel, BorderLayout.SOUTH);
 
-        JPanel gridWrapper = new JPanel(new GridBagLayout());
-        gridWrapper.setOpaque(false);
+        JPanel gridWrapper = new CenteringPanel();
         gridWrapper.add(grid);
 
+        JScrollPane gridScroll = new JScrollPane(gridWrapper);
+        gridScroll.setBorder(null);
+        gridScroll.setOpaque(false);
+        gridScroll.getViewport().setOpaque(false);
+
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
         buttonPanel.setOpaque(false);
         
         JButton restartBtn = createStyledButton("New Game", new Color(70, 130, 180));
         JButton instructionsBtn = createStyledButton("Instructions", new Color(100, 150, 100));
+        JButton replayBtn = createStyledButton("Copy Replay", new Color(130, 110, 170));
         JButton exitBtn = createStyledButton("Exit", new Color(180, 100, 100));
 
         restartBtn.addActionListener(e -> {
             dispose();
-            new InertiaGameFrame(difficulty);
+            open(difficulty, boardSize);
         });
 
+        // Seed and moves so far, for "java Replay"
+        replayBtn.addActionListener(e -> Toolkit.getDefaultToolkit().getSystemClipboard()
+            .setContents(new StringSelection(moveLog.toString()), null));
+
         instructionsBtn.addActionListener(e -> showInstructions());
         exitBtn.addActionListener(e -> System.exit(0));
 
         buttonPanel.add(restartBtn);
         buttonPanel.add(instructionsBtn);
+        buttonPanel.add(replayBtn);
         buttonPanel.add(exitBtn);
 
         mainPanel.add(topPanel, BorderLayout.NORTH);
-        mainPanel.add(gridWrapper, BorderLayout.CENTER);
+        mainPanel.add(gridScroll, BorderLayout.CENTER);
         mainPanel.add(buttonPanel, BorderLayout.SOUTH);
 
         add(mainPanel);
@@ -273,7 +399,7 @@ public class InertiaGameFrame extends JFrame {
         newGameBtn.addActionListener(e -> {
             dialog.dispose();
             dispose();
-            new InertiaGameFrame(difficulty);
+            open(difficulty, boardSize);
         });
 
         menuBtn.addActionListener(e -> {
@@ -323,12 +449,19 @@ public class InertiaGameFrame extends JFrame {
             "",
             "• Easy",
             "• Medium",
-            "• Hard"
+            "• Hard",
+            "• Expert - also plans for your replies",
+            "",
+            "BIG BOARDS",
+            "",
+            "• Pick a board size in the main menu (up to " + MAX_BOARD_SIZE + "x" + MAX_BOARD_SIZE + ")",
+            "• Scroll to move around, Ctrl + mouse wheel to zoom"
         };
 
         for (String line : instructions) {
             JLabel label = new JLabel(line);
-            if (line.equals("HOW TO PLAY") || line.equals("GOAL") || line.equals("DIFFICULTY LEVELS")) {
+            if (line.equals("HOW TO PLAY") || line.equals("GOAL") || line.equals("DIFFICULTY LEVELS")
+                    || line.equals("BIG BOARDS")) {
                 label.setFont(new Font("Arial", Font.BOLD, 16));
                 label.setForeground(new Color(50, 50, 80));
             } else {
@@ -356,7 +489,7 @@ public class InertiaGameFrame extends JFrame {
     public static void menu() {
         JFrame menuFrame = new JFrame("Inertia - Main Menu");
         menuFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        menuFrame.setSize(600, 550);
+        menuFrame.setSize(600, 650);
         menuFrame.setLocationRelativeTo(null);
 
         JPanel mainPanel = new JPanel(new BorderLayout());
@@ -413,18 +546,35 @@ public class InertiaGameFrame extends JFrame {
         selectLabel.setForeground(new Color(60, 60, 80));
         selectLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
+        JPanel sizePanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+        sizePanel.setOpaque(false);
+        JLabel sizeLabel = new JLabel("Board Size:");
+        sizeLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        sizeLabel.setForeground(new Color(60, 60, 80));
+        JComboBox<String> sizeBox = new JComboBox<>(BOARD_SIZES);
+        sizeBox.setEditable(true);
+        sizeBox.setFont(new Font("Arial", Font.PLAIN, 14));
+        sizePanel.add(sizeLabel);
+        sizePanel.add(sizeBox);
+        sizePanel.setMaximumSize(new Dimension(350, 40));
+
+        centerPanel.add(sizePanel);
+        centerPanel.add(Box.createRigidArea(new Dimension(0, 15)));
         centerPanel.add(selectLabel);
         centerPanel.add(Box.createRigidArea(new Dimension(0, 15)));
 
         JButton easyBtn = createMenuButton("🟢 Easy", new Color(100, 200, 100));
         JButton mediumBtn = createMenuButton("🟠 Medium", new Color(255, 180, 60));
         JButton hardBtn = createMenuButton("🔴 Hard", new Color(230, 90, 90));
+        JButton expertBtn = createMenuButton("🟣 Expert", new Color(140, 90, 200));
         
         centerPanel.add(easyBtn);
         centerPanel.add(Box.createRigidArea(new Dimension(0, 12)));
         centerPanel.add(mediumBtn);
         centerPanel.add(Box.createRigidArea(new Dimension(0, 12)));
         centerPanel.add(hardBtn);
+        centerPanel.add(Box.createRigidArea(new Dimension(0, 12)));
+        centerPanel.add(expertBtn);
         centerPanel.add(Box.createRigidArea(new Dimension(0, 20)));
 
         // Bottom buttons
@@ -441,17 +591,22 @@ public class InertiaGameFrame extends JFrame {
 
         easyBtn.addActionListener(e -> {
             menuFrame.dispose();
-            new InertiaGameFrame(Difficulty.EASY);
+            open(Difficulty.EASY, boardSize(sizeBox));
         });
 
         mediumBtn.addActionListener(e -> {
             menuFrame.dispose();
-            new InertiaGameFrame(Difficulty.MEDIUM);
+            open(Difficulty.MEDIUM, boardSize(sizeBox));
         });
 
         hardBtn.addActionListener(e -> {
             menuFrame.dispose();
-            new InertiaGameFrame(Difficulty.HARD);
+            open(Difficulty.HARD, boardSize(sizeBox));
+        });
+
+        expertBtn.addActionListener(e -> {
+            menuFrame.dispose();
+            open(Difficulty.EXPERT, boardSize(sizeBox));
         });
 
         instructionsBtn.addActionListener(e -> {
@@ -469,6 +624,47 @@ public class InertiaGameFrame extends JFrame {
         menuFrame.setVisible(true);
     }
 
+    // Typed sizes are clamped to what the model and UI support
+    private static int boardSize(JComboBox<String> box) {
+        try {
+            int size = Integer.parseInt(String.valueOf(box.getSelectedItem()).trim());
+            return Math.max(MIN_BOARD_SIZE, Math.min(MAX_BOARD_SIZE, size));
+        } catch (NumberFormatException e) {
+            return DEFAULT_BOARD_SIZE;
+        }
+    }
+
+    // Centres the board while it is smaller than the viewport, scrolls it once it is larger
+    private static class CenteringPanel extends JPanel implements Scrollable {
+        private static final long serialVersionUID = 1L;
+
+        CenteringPanel() {
+            super(new GridBagLayout());
+            setOpaque(false);
+        }
+
+        public Dimension getPreferredScrollableViewportSize() {
+            Dimension d = getPreferredSize();
+            return new Dimension(Math.min(d.width, MAX_VIEW), Math.min(d.height, MAX_VIEW));
+        }
+
+        public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+            return 16;
+        }
+
+        public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+            return orientation == SwingConstants.VERTICAL ? visible.height : visible.width;
+        }
+
+        public boolean getScrollableTracksViewportWidth() {
+            return getParent().getWidth() > getPreferredSize().width;
+        }
+
+        public boolean getScrollableTracksViewportHeight() {
+            return getParent().getHeight() > getPreferredSize().height;
+        }
+    }
+
     private static JButton createMenuButton(String text, Color bg) {
         JButton button = new JButton(text);
         button.setFont(new Font("Arial", Font.BOLD, 18));
@@ -0,0 +1,87 @@
+// Compact record of one game: board seed, size, CPU level and one character per ply.
+// Plies alternate human, CPU, starting with the human; each is a Direction ordinal
+// ('0'-'7') or PASS. The seeded board plus the moves reproduce the game exactly.
+// board= only appears when the board was generated for another level than the CPU's.
+//
+//   inertia seed=20240101 size=12x12 level=HARD moves=3705.16
+public class MoveLog {
+
+    public static final char PASS = '.';
+    private static final String TAG = "inertia";
+
+    public final long seed;
+    public final int rows, cols;
+    public final Difficulty level;
+    public final Difficulty boardLevel;
+    private final StringBuilder moves = new StringBuilder();
+
+    public MoveLog(long seed, int rows, int cols, Difficulty level) {
+        this(seed, rows, cols, level, level);
+    }
+
+    public MoveLog(long seed, int rows, int cols, Difficulty level, Difficulty boardLevel) {
+        this.seed = seed;
+        this.rows = rows;
+        this.cols = cols;
+        this.level = level;
+        this.boardLevel = boardLevel;
+    }
+
+    // Logs the next ply; null records a pass
+    public void record(Direction d) {
+        moves.append(d == null ? PASS : (char) ('0' + d.ordinal()));
+    }
+
+    public int plies() {
+        return moves.length();
+    }
+
+    // Move of the given ply, or null for a pass
+    public Direction move(int ply) {
+        char ch = moves.charAt(ply);
+        return ch == PASS ? null : Direction.ALL[ch - '0'];
+    }
+
+    // Fresh board the game was played on
+    public BoardModel newBoard() {
+        return new BoardModel(rows, cols, boardLevel, seed);
+    }
+
+    @Override
+    public String toString() {
+        return TAG + " seed=" + seed + " size=" + rows + "x" + cols + " level=" + level
+            + (boardLevel != level ? " board=" + boardLevel : "") + " moves=" + moves;
+    }
+
+    public static MoveLog parse(String text) {
+        String[] parts = text.trim().split("\\s+");
+        if (parts.length < 4 || !parts[0].equals(TAG)) {
+            throw new IllegalArgumentException("Not a move log: " + text);
+        }
+        long seed = Long.parseLong(field(parts[1], "seed"));
+        String[] size = field(parts[2], "size").split("x");
+        Difficulty level = Difficulty.valueOf(field(parts[3], "level"));
+        int next = 4;
+        Difficulty boardLevel = level;
+        if (next < parts.length && parts[next].startsWith("board=")) {
+            boardLevel = Difficulty.valueOf(field(parts[next++], "board"));
+        }
+
+        MoveLog log = new MoveLog(seed, Integer.parseInt(size[0]), Integer.parseInt(size[1]), level, boardLevel);
+        String moves = next < parts.length ? field(parts[next], "moves") : "";
+        for (char ch : moves.toCharArray()) {
+            if (ch != PASS && (ch < '0' || ch >= '0' + Direction.ALL.length)) {
+                throw new IllegalArgumentException("Bad move '" + ch + "' in move log");
+            }
+            log.moves.append(ch);
+        }
+        return log;
+    }
+
+    private static String field(String part, String name) {
+        if (!part.startsWith(name + "=")) {
+            throw new IllegalArgumentException("Expected " + name + "=... in move log, got " + part);
+        }
+        return part.substring(name.length() + 1);
+    }
+}
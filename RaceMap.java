@@ -0,0 +1,172 @@
+import java.util.Arrays;
+
+// Which player gets to each gem first. Both players' slide distances, up to HORIZON
+// slides, come from one breadth-first pass over (cell, player) states with the player
+// to move queued first. A gem belongs to whoever crosses it in fewer slides; on a tie it
+// goes to the player who moves first. Only a player holding shields takes slides onto mines.
+// A player's distances depend only on their cell and on whether they hold shields.
+// After a move, only the side that moved is searched again. Between refreshes the
+// ownership stays fixed, and BoardModel counts the gems each side still has to win.
+public class RaceMap {
+
+    public static final int HUMAN = 0, CPU = 1, NONE = -1;
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    // Farther gems count for neither side; this bounds the cost of a refresh
+    public static final int HORIZON = 12;
+
+    private final SlideGraph graph;
+    private final int cells, cols;
+
+    // Per state (player * cells + cell), stamped with the player's pass (stamp << 4 | value)
+    private final int[] crossedAt;  // value: slides until the player first crosses the cell
+    private final int[] queued;
+
+    private final int[] stamp = new int[2];
+    private final int[] key = {-1, -1};   // cell * 2 + (shields > 0) each side was searched from
+
+    // Cells each player crosses, in order; the gems among them are counted per refresh
+    private final int[][] crossed = new int[2][64];
+    private final int[] crossedCount = new int[2];
+
+    private int[] queue = new int[64];  // state << 4 | slides
+
+    private boolean humanFirst;
+
+    // Set once a snapshot shares this map; shared maps are copied before refreshing
+    boolean shared;
+
+    RaceMap(BoardModel m) {
+        graph = m.slideGraph();
+        cells = m.rows * m.cols;
+        cols = m.cols;
+        crossedAt = new int[2 * cells];
+        queued = new int[2 * cells];
+    }
+
+    private RaceMap(RaceMap src) {
+        graph = src.graph;
+        cells = src.cells;
+        cols = src.cols;
+        crossedAt = src.crossedAt.clone();
+        queued = src.queued.clone();
+        System.arraycopy(src.stamp, 0, stamp, 0, 2);
+        System.arraycopy(src.key, 0, key, 0, 2);
+        for (int player = HUMAN; player <= CPU; player++) {
+            crossed[player] = Arrays.copyOf(src.crossed[player], Math.max(64, src.crossedCount[player]));
+            crossedCount[player] = src.crossedCount[player];
+        }
+        humanFirst = src.humanFirst;
+    }
+
+    RaceMap copy() {
+        return new RaceMap(this);
+    }
+
+    // True unless a refresh is needed for these positions and turn
+    boolean isCurrent(BoardModel m, boolean humanToMove) {
+        return humanFirst == humanToMove && key[HUMAN] == humanKey(m) && key[CPU] == cpuKey(m);
+    }
+
+    private static int humanKey(BoardModel m) {
+        return m.index(m.humanRow, m.humanCol) * 2 + (m.humanShields > 0 ? 1 : 0);
+    }
+
+    private static int cpuKey(BoardModel m) {
+        return m.index(m.cpuRow, m.cpuCol) * 2 + (m.cpuShields > 0 ? 1 : 0);
+    }
+
+    // Slides until the player first crosses the cell, or UNREACHED within HORIZON
+    public int slides(int player, int cell) {
+        int v = crossedAt[player * cells + cell];
+        return v >>> 4 == stamp[player] ? v & 15 : UNREACHED;
+    }
+
+    // Player who collects a gem on this cell first, or NONE if neither gets there in time
+    public int owner(int cell) {
+        int h = slides(HUMAN, cell), c = slides(CPU, cell);
+        if (h == c) return h == UNREACHED ? NONE : humanFirst ? HUMAN : CPU;
+        return h < c ? HUMAN : CPU;
+    }
+
+    // Searches again from whichever player moved since the last refresh
+    void refresh(BoardModel m, boolean humanToMove) {
+        int humanKey = humanKey(m), cpuKey = cpuKey(m);
+        humanFirst = humanToMove;
+        boolean humanStale = key[HUMAN] != humanKey, cpuStale = key[CPU] != cpuKey;
+        if (humanStale || cpuStale) {
+            int tail = 0;
+            int first = humanToMove ? HUMAN : CPU;
+            for (int player = first, i = 0; i < 2; player ^= 1, i++) {
+                if (player == HUMAN ? !humanStale : !cpuStale) continue;
+                key[player] = player == HUMAN ? humanKey : cpuKey;
+                newPass(player);
+                int state = player * cells + (key[player] >> 1);
+                queued[state] = stamp[player] << 4;
+                queue[tail++] = state << 4;
+            }
+            search(tail);
+        }
+    }
+
+    private void newPass(int player) {
+        crossedCount[player] = 0;
+        if (++stamp[player] == 1 << 27) {
+            // Stamp overflow: forget every old mark of this player
+            Arrays.fill(crossedAt, player * cells, (player + 1) * cells, 0);
+            Arrays.fill(queued, player * cells, (player + 1) * cells, 0);
+            stamp[player] = 1;
+        }
+    }
+
+    // FIFO over both players' states, so each player's cells are reached in slide order
+    private void search(int tail) {
+        for (int head = 0; head < tail; head++) {
+            int state = queue[head] >>> 4, depth = queue[head] & 15;
+            int player = state >= cells ? CPU : HUMAN;
+            int cell = state - player * cells;
+            boolean shielded = (key[player] & 1) != 0;
+            for (int ks = graph.moves(cell); ks != 0; ks &= ks - 1) {
+                int e = graph.edge(cell, Integer.numberOfTrailingZeros(ks));
+                if (SlideGraph.edgeHitsMine(e) && !shielded) continue;
+                int dest = SlideGraph.edgeCell(e);
+                if (SlideGraph.edgeMayCrossGems(e)) {
+                    Direction d = Direction.ALL[SlideGraph.edgeDirection(e)];
+                    cross(player, cell, dest, d.dx * cols + d.dy, depth + 1);
+                }
+                int next = player * cells + dest;
+                if (depth + 1 < HORIZON && queued[next] >>> 4 != stamp[player]) {
+                    queued[next] = stamp[player] << 4;
+                    if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+                    queue[tail++] = next << 4 | depth + 1;
+                }
+            }
+        }
+    }
+
+    // Marks the cells of one slide; the first pass to reach a cell has the fewest slides
+    private void cross(int player, int from, int dest, int step, int slides) {
+        int base = player * cells, mark = stamp[player] << 4;
+        for (int x = from + step; ; x += step) {
+            if (crossedAt[base + x] >>> 4 != stamp[player]) {
+                crossedAt[base + x] = mark | slides;
+                int n = crossedCount[player]++;
+                if (n == crossed[player].length) crossed[player] = Arrays.copyOf(crossed[player], n * 2);
+                crossed[player][n] = x;
+            }
+            if (x == dest) break;
+        }
+    }
+
+    // Fills won with the number of gems on the board each player wins the race to
+    void countGems(BoardModel m, int[] won) {
+        for (int player = HUMAN; player <= CPU; player++) {
+            int count = 0;
+            for (int j = 0, n = crossedCount[player]; j < n; j++) {
+                int x = crossed[player][j];
+                if ((m.flagsAt(x) & Cell.GEM) != 0 && owner(x) == player) count++;
+            }
+            won[player] = count;
+        }
+    }
+}
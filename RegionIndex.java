@@ -0,0 +1,111 @@
+// Greedy's region scores as a persistent heap-ordered quadtree over BoardModel's tiles.
+// Node 0 is the board, the children of node i are 4i+1 .. 4i+4 (top-left, top-right,
+// bottom-left, bottom-right) and the 64 leaves (nodes 21 .. 84) are the model's tiles.
+// Each node keeps its best and worst scoring leaf; after a move only the leaves whose
+// tiles changed are rescored and their paths to the root re-aggregated.
+public class RegionIndex {
+
+    private static final int DEPTH = 3;
+    private static final int TILES = BoardModel.TILE_SPLITS * BoardModel.TILE_SPLITS;
+    private static final int NODES = (4 * TILES - 1) / 3;   // 1 + 4 + 16 + 64
+    private static final int FIRST_LEAF = NODES - TILES;
+
+    // Leaf node of each tile
+    private static final int[] TILE_NODE = new int[TILES];
+
+    static {
+        for (int rb = 0; rb < BoardModel.TILE_SPLITS; rb++) {
+            for (int cb = 0; cb < BoardModel.TILE_SPLITS; cb++) {
+                int node = 0;
+                for (int level = DEPTH - 1; level >= 0; level--) {
+                    node = node * 4 + (((rb >> level) & 1) << 1 | ((cb >> level) & 1)) + 1;
+                }
+                TILE_NODE[rb * BoardModel.TILE_SPLITS + cb] = node;
+            }
+        }
+    }
+
+    // Per tile: fixed once the board is generated
+    private final int[] area;
+    private final int[] deadEnds;
+
+    private final double[] leafScore;
+    private final int[] best, worst;   // per node: leaf with the highest / lowest score
+
+    // Set once a snapshot shares this index; shared indexes are copied before updating
+    boolean shared;
+
+    RegionIndex(BoardModel m) {
+        area = new int[TILES];
+        deadEnds = new int[TILES];
+        leafScore = new double[NODES];
+        best = new int[NODES];
+        worst = new int[NODES];
+
+        for (int r = 0; r < m.rows; r++) {
+            for (int c = 0; c < m.cols; c++) {
+                int tile = m.tileAt(r, c);
+                area[tile]++;
+                if (m.isDeadEnd(r, c)) deadEnds[tile]++;
+            }
+        }
+        for (int tile = 0; tile < TILES; tile++) scoreLeaf(m, tile);
+        for (int node = FIRST_LEAF - 1; node >= 0; node--) combine(node);
+    }
+
+    private RegionIndex(RegionIndex src) {
+        area = src.area;
+        deadEnds = src.deadEnds;
+        leafScore = src.leafScore.clone();
+        best = src.best.clone();
+        worst = src.worst.clone();
+    }
+
+    RegionIndex copy() {
+        return new RegionIndex(this);
+    }
+
+    // Rescores the tiles set in dirtyTiles (bit per tile) and walks each one up to the root
+    void update(BoardModel m, long dirtyTiles) {
+        while (dirtyTiles != 0) {
+            int tile = Long.numberOfTrailingZeros(dirtyTiles);
+            dirtyTiles &= dirtyTiles - 1;
+            scoreLeaf(m, tile);
+            for (int node = TILE_NODE[tile]; node > 0; ) {
+                node = (node - 1) >> 2;
+                combine(node);
+            }
+        }
+    }
+
+    // Leaf region holding a cell, via the model's row and column bands
+    public static int leafAt(BoardModel m, int r, int c) {
+        return TILE_NODE[m.tileAt(r, c)];
+    }
+
+    public int bestLeaf()  { return best[0]; }
+    public int worstLeaf() { return worst[0]; }
+
+    public double score(int leaf) { return leafScore[leaf]; }
+
+    private void scoreLeaf(BoardModel m, int tile) {
+        int node = TILE_NODE[tile];
+        double score = m.tileGems(tile) * 10.0 + m.tileShields(tile) * 5.0
+                     - m.tileMines(tile) * 15.0 - deadEnds[tile] * 8.0
+                     - m.tileWalls(tile) * 0.5;
+        leafScore[node] = area[tile] > 0 ? score / Math.sqrt(area[tile]) : score;
+        best[node] = worst[node] = node;
+    }
+
+    // First child wins ties, as in a left-to-right scan of the leaves
+    private void combine(int node) {
+        int first = node * 4 + 1;
+        int hi = best[first], lo = worst[first];
+        for (int child = first + 1; child < first + 4; child++) {
+            if (leafScore[best[child]] > leafScore[hi]) hi = best[child];
+            if (leafScore[worst[child]] < leafScore[lo]) lo = worst[child];
+        }
+        best[node] = hi;
+        worst[node] = lo;
+    }
+}
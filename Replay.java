@@ -0,0 +1,61 @@
+import java.nio.file.*;
+
+// Re-executes a MoveLog headlessly at full speed. Every recorded ply is replayed on the
+// seeded board; at each CPU ply the search is run again on the same position and timed,
+// so a slow or surprising decision can be reproduced and profiled.
+//
+//   java Replay <move log | file> [budgetMs]
+public class Replay {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: java Replay <move log | file> [budgetMs]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        String text = Files.isRegularFile(file) ? new String(Files.readAllBytes(file), "UTF-8") : args[0];
+        MoveLog log = MoveLog.parse(text);
+        long budgetMs = args.length > 1 ? Long.parseLong(args[1]) : Greedy.defaultBudgetMillis(log.level);
+
+        System.out.printf("seed %d, %dx%d, %s, %d plies, %d ms per decision%n",
+            log.seed, log.rows, log.cols, log.level, log.plies(), budgetMs);
+        System.out.printf("%5s %8s %8s %6s %10s %9s%n", "ply", "played", "decided", "depth", "nodes", "ms");
+
+        BoardModel m = log.newBoard();
+        int decisions = 0, differ = 0;
+        long totalNanos = 0, slowestNanos = -1;
+        int slowestPly = -1;
+
+        for (int ply = 0; ply < log.plies() && !m.gameOver; ply++) {
+            boolean human = (ply & 1) == 0;
+            Direction played = log.move(ply);
+
+            if (!human) {
+                Greedy.Decision d = Greedy.decide(m, log.level, budgetMs);
+                decisions++;
+                totalNanos += d.nanos;
+                if (d.nanos > slowestNanos) {
+                    slowestNanos = d.nanos;
+                    slowestPly = ply;
+                }
+                // Budgets are wall-clock, so a replayed search may legitimately stop at another depth
+                boolean same = d.direction == played;
+                if (!same) differ++;
+                System.out.printf("%5d %8s %8s %6d %10d %9.2f%s%n",
+                    ply, name(played), name(d.direction), d.depth, d.nodes, d.nanos / 1e6, same ? "" : " *");
+            }
+
+            if (played != null) m.move(human, played);
+            if (!m.gameOver) m.checkEndGame();
+        }
+
+        System.out.printf("%d decisions, mean %.2f ms, slowest %.2f ms at ply %d, %d differ from the log%n",
+            decisions, decisions == 0 ? 0 : totalNanos / 1e6 / decisions, slowestNanos / 1e6, slowestPly, differ);
+        System.out.printf("final: human %d, cpu %d%s%n", m.humanScore, m.cpuScore,
+            m.gameOver ? " - " + m.gameResult : "");
+    }
+
+    private static String name(Direction d) {
+        return d == null ? "pass" : d.name();
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.*;
+
+// Plays random moves on seeded boards with apply(), taking some of them back with undo(),
+// and after every step compares the board with a fresh board that replayed the same moves
+// with move(), and its incremental tables, gem distances and safe-move masks with a
+// recomputation from the cells. Throws on the first mismatch, naming the seed and the
+// moves that led to it. `mvn test` runs it.
+//
+//   java SelfCheck [boards [size ...]]
+public class SelfCheck {
+
+    private static final long BASE_SEED = 20240101L;
+    private static final int PLIES = 60;
+
+    public static void main(String[] args) {
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        int[] sizes = args.length > 1
+            ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+            : new int[]{12, 32, 64};
+
+        long start = System.nanoTime();
+        int steps = 0;
+        for (int size : sizes) {
+            for (int b = 0; b < boards; b++) {
+                Difficulty level = Difficulty.values()[b % Difficulty.values().length];
+                steps += checkBoard(size, level, BASE_SEED + b);
+            }
+        }
+        System.out.printf("ok: %d boards, %d steps checked in %.1f s%n",
+            boards * sizes.length, steps, (System.nanoTime() - start) / 1e9);
+    }
+
+    // One random game with undos mixed in; returns the number of steps checked
+    private static int checkBoard(int size, Difficulty level, long seed) {
+        BoardModel m = new BoardModel(size, size, level, seed);
+        Random rnd = new Random(seed);
+        List<Direction> played = new ArrayList<>();
+        checkState(m, size, level, seed, played);
+
+        int steps = 0;
+        for (int ply = 0; ply < PLIES; ply++) {
+            if (!played.isEmpty() && rnd.nextInt(4) == 0) {
+                for (int n = 1 + rnd.nextInt(3); n > 0 && !played.isEmpty(); n--) {
+                    m.undo();
+                    played.remove(played.size() - 1);
+                }
+            } else if (!m.gameOver) {
+                // Any direction, mines included, and now and then a pass
+                Direction d = rnd.nextInt(10) == 0 ? null : Direction.ALL[rnd.nextInt(8)];
+                m.apply((played.size() & 1) == 0, d);
+                m.checkEndGame();
+                played.add(d);
+            } else {
+                break;
+            }
+            checkState(m, size, level, seed, played);
+            steps++;
+        }
+        while (!played.isEmpty()) {
+            m.undo();
+            played.remove(played.size() - 1);
+            checkState(m, size, level, seed, played);
+            steps++;
+        }
+        return steps;
+    }
+
+    private static void checkState(BoardModel m, int size, Difficulty level, long seed, List<Direction> played) {
+        String where = String.format("seed %d, %dx%d %s, after %s", seed, size, size, level, played);
+        BoardModel expected = new BoardModel(size, size, level, seed);
+        for (int ply = 0; ply < played.size(); ply++) {
+            Direction d = played.get(ply);
+            if (d != null) expected.move((ply & 1) == 0, d);
+            expected.checkEndGame();
+        }
+
+        check(m.undoDepth() == played.size(), where, "undo depth " + m.undoDepth());
+        check(m.humanRow == expected.humanRow && m.humanCol == expected.humanCol, where, "human position");
+        check(m.cpuRow == expected.cpuRow && m.cpuCol == expected.cpuCol, where, "cpu position");
+        check(m.humanScore == expected.humanScore && m.cpuScore == expected.cpuScore, where, "scores");
+        check(m.humanShields == expected.humanShields && m.cpuShields == expected.cpuShields, where, "shields");
+        check(m.gameOver == expected.gameOver && m.gameResult.equals(expected.gameResult), where, "game result");
+        for (int i = 0; i < size * size; i++) {
+            check(m.cellFlags(i / size, i % size) == expected.cellFlags(i / size, i % size), where, "cell " + i);
+        }
+        checkItems(m, where);
+        checkSlides(m, where);
+        checkGemDistances(m, where);
+        checkSafeMoves(m, where);
+    }
+
+    // Live counts and the Zobrist item hash against a scan of the cells
+    private static void checkItems(BoardModel m, String where) {
+        int gems = 0, shields = 0;
+        long hash = 0;
+        int[] tileGems = new int[BoardModel.TILE_SPLITS * BoardModel.TILE_SPLITS];
+        int[] tileShields = new int[tileGems.length];
+        for (int r = 0; r < m.rows; r++) {
+            for (int c = 0; c < m.cols; c++) {
+                int i = m.index(r, c);
+                if (m.hasGem(r, c)) {
+                    gems++;
+                    tileGems[m.tileAt(r, c)]++;
+                    hash ^= BoardModel.zobrist(BoardModel.ZOBRIST_GEM, i);
+                }
+                if (m.hasShield(r, c)) {
+                    shields++;
+                    tileShields[m.tileAt(r, c)]++;
+                    hash ^= BoardModel.zobrist(BoardModel.ZOBRIST_SHIELD, i);
+                }
+            }
+        }
+        check(m.gemsRemaining() == gems, where, "gemsRemaining " + m.gemsRemaining() + ", scanned " + gems);
+        check(m.shieldsRemaining() == shields, where, "shieldsRemaining " + m.shieldsRemaining() + ", scanned " + shields);
+        check(m.itemHash() == hash, where, "item hash");
+        for (int tile = 0; tile < tileGems.length; tile++) {
+            check(m.tileGems(tile) == tileGems[tile] && m.tileShields(tile) == tileShields[tile], where, "tile " + tile);
+        }
+    }
+
+    // Every entry of the patched slide table against a walk over the cells. Rays that
+    // start on a wall are never patched: no player can stand there.
+    private static void checkSlides(BoardModel m, String where) {
+        for (int r = 0; r < m.rows; r++) {
+            for (int c = 0; c < m.cols; c++) {
+                if (m.isWall(r, c)) continue;
+                for (Direction d : Direction.ALL) {
+                    long walked = walk(m, r, c, d);
+                    check(m.slidePacked(r, c, d) == walked, where, "slide from " + r + "," + c + " " + d);
+                }
+            }
+        }
+    }
+
+    // The repaired distance fields against a field built from scratch on the same board
+    private static void checkGemDistances(BoardModel m, String where) {
+        GemDistances live = m.gemDistances();
+        GemDistances fresh = new GemDistances(m);
+        for (int i = 0; i < m.rows * m.cols; i++) {
+            for (int shields = 0; shields <= 1; shields++) {
+                check(live.distance(i, shields) == fresh.distance(i, shields), where,
+                    "gem distance of cell " + i + " with " + shields + " shields: "
+                    + live.distance(i, shields) + ", rebuilt " + fresh.distance(i, shields));
+            }
+        }
+    }
+
+    // Precomputed safe-direction masks and dead ends against the per-call loops they replaced
+    private static void checkSafeMoves(BoardModel m, String where) {
+        for (int r = 0; r < m.rows; r++) {
+            for (int c = 0; c < m.cols; c++) {
+                if (m.isWall(r, c)) {
+                    check(!m.isDeadEnd(r, c), where, "wall " + r + "," + c + " marked as a dead end");
+                    continue;
+                }
+                for (int shields = 0; shields <= 1; shields++) {
+                    int expected = 0;
+                    for (Direction d : Direction.ALL) {
+                        long e = walk(m, r, c, d);
+                        boolean survivable = !BoardModel.slideHitMine(e) || shields > 0;
+                        if (survivable && BoardModel.slideCell(e) != m.index(r, c)) expected |= 1 << d.ordinal();
+                    }
+                    check(m.safeDirections(r, c, shields) == expected, where,
+                        "safe directions of " + r + "," + c + " with " + shields + " shields");
+                    check(m.hasAnySafeMove(r, c, shields) == (expected != 0), where,
+                        "hasAnySafeMove at " + r + "," + c + " with " + shields + " shields");
+                }
+                int blocked = 0;
+                for (Direction d : Direction.ALL) {
+                    int nr = r + d.dx, nc = c + d.dy;
+                    if (!m.inBounds(nr, nc) || m.isWall(nr, nc) || m.isMine(nr, nc)) blocked++;
+                }
+                check(m.isDeadEnd(r, c) == blocked >= 6, where, "dead end at " + r + "," + c);
+            }
+        }
+    }
+
+    // The slide as the original step-by-step loop played it, packed like slidePacked()
+    static long walk(BoardModel m, int r, int c, Direction d) {
+        long gems = 0, shields = 0, mine = 0;
+        while (true) {
+            int nr = r + d.dx, nc = c + d.dy;
+            if (!m.inBounds(nr, nc) || m.isWall(nr, nc)) break;
+            r = nr;
+            c = nc;
+            if (m.isMine(r, c)) {
+                mine = Long.MIN_VALUE;
+                break;
+            }
+            if (m.hasGem(r, c)) gems++;
+            if (m.hasShield(r, c)) shields++;
+            if (m.isStop(r, c)) break;
+        }
+        return m.index(r, c) | gems << 32 | shields << 48 | mine;
+    }
+
+    private static void check(boolean ok, String where, String what) {
+        if (!ok) throw new IllegalStateException(where + ": " + what);
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.Arrays;
+
+// The board's slide moves as a directed graph. The moves out of cell i are the set bits
+// of moves(i), in Direction order, and edge(i, k) packs the move in Direction k as
+// (destination << 4 | gems << 3 | direction), where the gems bit is set if the slide
+// crossed a gem when the graph was built, and is stored complemented (negative) when the
+// slide ends on a mine. Collecting items never changes where a slide ends, and gems are
+// never added, so the graph is built once per board and shared by its snapshots. It reads
+// destinations from the board's slide steps and keeps one byte per cell of its own.
+public class SlideGraph {
+
+    private final char[] slideSteps;  // the board's, (cell << 3) + direction
+    private final int[] stepOffset;   // cell index change per step, by direction
+    private final byte[] moves;       // the board's safeShielded: bit k set if the slide moves
+    private final byte[] gemRays;     // bit k set if the slide crossed a gem when built
+    private final int edgeCount;
+
+    // Reverse graph, built on first use: the cells with a slide into cell i are
+    // reverseEdges[reverseStart[i]] .. reverseEdges[reverseStart[i + 1] - 1], each
+    // complemented when that slide ends on a mine
+    private int[] reverseStart, reverseEdges;
+
+    // One search state per thread, grown to the largest board it has seen
+    private static final ThreadLocal<Bfs> BFS = ThreadLocal.withInitial(Bfs::new);
+
+    // Arrays as BoardModel lays them out; rayItems is only read here, to set gemRays
+    SlideGraph(char[] slideSteps, int[] stepOffset, byte[] moves, char[] rayItems) {
+        this.slideSteps = slideSteps;
+        this.stepOffset = stepOffset.clone();
+        this.moves = moves;
+        gemRays = new byte[moves.length];
+        int count = 0;
+        for (int i = 0; i < moves.length; i++) {
+            count += Integer.bitCount(moves[i] & 0xFF);
+            for (int k = 0; k < 8; k++) {
+                if ((rayItems[(i << 3) + k] & BoardModel.RAY_GEM_MASK) != 0) gemRays[i] |= 1 << k;
+            }
+        }
+        edgeCount = count;
+    }
+
+    // Bit k set if the slide from cell in Direction k goes somewhere
+    public int moves(int cell) { return moves[cell] & 0xFF; }
+
+    // The move from cell in Direction k, which must be one of moves(cell)
+    public int edge(int cell, int k) {
+        int steps = slideSteps[(cell << 3) + k];
+        int dest = cell + (steps & ~BoardModel.SLIDE_STEPS_MINE) * stepOffset[k];
+        int edge = dest << 4 | (gemRays[cell] >> k & 1) << 3 | k;
+        return steps >= BoardModel.SLIDE_STEPS_MINE ? ~edge : edge;
+    }
+
+    public static int edgeCell(int edge)         { return (edge < 0 ? ~edge : edge) >>> 4; }
+    public static int edgeDirection(int edge)    { return (edge < 0 ? ~edge : edge) & 7; }
+    public static boolean edgeHitsMine(int edge) { return edge < 0; }
+
+    // False means the slide crosses no gems; true means it may still (read the slide table)
+    public static boolean edgeMayCrossGems(int edge) { return ((edge < 0 ? ~edge : edge) & 8) != 0; }
+
+    // Valid once buildReverse() has been called on the reading thread
+    public int firstReverseEdge(int cell) { return reverseStart[cell]; }
+    public int endReverseEdge(int cell)   { return reverseStart[cell + 1]; }
+    public int reverseEdge(int i)         { return reverseEdges[i]; }
+
+    // Builds the reverse graph if no thread has yet; snapshots on other threads share it
+    public synchronized void buildReverse() {
+        if (reverseStart != null) return;
+        int cells = moves.length;
+        int[] rs = new int[cells + 1];
+        for (int from = 0; from < cells; from++) {
+            for (int ks = moves(from); ks != 0; ks &= ks - 1) {
+                rs[edgeCell(edge(from, Integer.numberOfTrailingZeros(ks))) + 1]++;
+            }
+        }
+        for (int i = 0; i < cells; i++) rs[i + 1] += rs[i];
+
+        int[] re = new int[edgeCount];
+        int[] next = Arrays.copyOf(rs, cells);
+        for (int from = 0; from < cells; from++) {
+            for (int ks = moves(from); ks != 0; ks &= ks - 1) {
+                int e = edge(from, Integer.numberOfTrailingZeros(ks));
+                re[next[edgeCell(e)]++] = e < 0 ? ~from : from;
+            }
+        }
+        reverseEdges = re;
+        reverseStart = rs;
+    }
+
+    // This thread's search state, cleared and sized for a board of the given cells
+    public static Bfs bfs(int cells) {
+        Bfs bfs = BFS.get();
+        bfs.reset(cells);
+        return bfs;
+    }
+
+    // Reusable breadth-first search state: an int queue of cells and a visit mark per
+    // cell. Marks are stamps, so clearing them between searches costs nothing. Each
+    // cell also carries a tag, e.g. the first move of the path that reached it.
+    public static final class Bfs {
+        private int[] queue = new int[0];
+        private int[] mark = new int[0];
+        private int[] tag = new int[0];
+        private int stamp;
+        private int head, tail;
+
+        private void reset(int cells) {
+            if (queue.length < cells) {
+                queue = new int[cells];
+                mark = new int[cells];
+                tag = new int[cells];
+                stamp = 0;
+            }
+            if (++stamp == 0) {
+                Arrays.fill(mark, 0);
+                stamp = 1;
+            }
+            head = tail = 0;
+        }
+
+        // Queues the cell unless it was seen before; every cell enters at most once
+        public boolean offer(int cell, int cellTag) {
+            if (mark[cell] == stamp) return false;
+            mark[cell] = stamp;
+            tag[cell] = cellTag;
+            queue[tail++] = cell;
+            return true;
+        }
+
+        public boolean isEmpty() { return head == tail; }
+        public int poll()        { return queue[head++]; }
+
+        // Cells offered since the search started, in the order they were queued
+        public int count()        { return tail; }
+        public int cell(int i)    { return queue[i]; }
+
+        public boolean visited(int cell) { return mark[cell] == stamp; }
+        public int tag(int cell)         { return tag[cell]; }
+    }
+}
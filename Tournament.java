@@ -0,0 +1,195 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless CPU-vs-CPU games for load-testing the AI without a display.
+// Every board is played twice with the two levels swapping the human and CPU seats;
+// games run in parallel, each worker playing one board at a time and searching on its own thread.
+//
+//   java Tournament [games [levelA levelB [size [budgetMs [threads]]]]]
+public class Tournament {
+
+    private static final long BASE_SEED = 20240101L;
+
+    // Games still running after this many plies are scored as they stand and counted as unfinished
+    private static final int MAX_PLIES = 400;
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        Difficulty a = args.length > 2 ? Difficulty.valueOf(args[1].toUpperCase()) : Difficulty.MEDIUM;
+        Difficulty b = args.length > 2 ? Difficulty.valueOf(args[2].toUpperCase()) : Difficulty.HARD;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 12;
+        long budgetMs = args.length > 4 ? Long.parseLong(args[4]) : 20;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%d games, %s vs %s, %dx%d, %d ms per decision, %d threads%n",
+            games, a, b, size, size, budgetMs, threads);
+
+        AtomicInteger next = new AtomicInteger();
+        List<Callable<Worker>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Worker(a, b, size, budgetMs, games, next));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        Worker total = new Worker(a, b, size, budgetMs, games, next);
+        try {
+            for (Future<Worker> f : pool.invokeAll(workers)) total.add(f.get());
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int played = total.winsA + total.winsB + total.draws;
+        System.out.printf("%s wins %.1f%%, %s wins %.1f%%, draws %.1f%% (%d unfinished)%n",
+            a, 100.0 * total.winsA / played, b, 100.0 * total.winsB / played,
+            100.0 * total.draws / played, total.unfinished);
+        System.out.printf("%-8s %10s %9s %9s %9s %9s %9s%n",
+            "level", "decisions", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        if (a == b) {
+            total.latencyA.add(total.latencyB);
+            total.latencyA.print(a.toString());
+        } else {
+            total.latencyA.print(a.toString());
+            total.latencyB.print(b.toString());
+        }
+        System.out.printf("%.1f s, %.2f games/s, %.1f plies/game%n",
+            seconds, played / seconds, (double) total.plies / played);
+        if (total.slowestGame != null) {
+            System.out.printf("slowest CPU-seat decision %.2f ms, reproduce with:%n  java Replay \"%s\"%n",
+                total.slowestNanos / 1e6, total.slowestGame);
+        }
+    }
+
+    // Plays games off the shared counter until none are left; keeps its own tallies
+    private static final class Worker implements Callable<Worker> {
+        final Difficulty a, b;
+        final int size;
+        final long budgetMs;
+        final int games;
+        final AtomicInteger next;
+
+        int winsA, winsB, draws, unfinished;
+        long plies;
+
+        // Move log of the game holding the slowest CPU-seat decision (Replay re-runs those)
+        long slowestNanos = -1;
+        MoveLog slowestGame;
+        final Samples latencyA = new Samples();
+        final Samples latencyB = new Samples();
+
+        Worker(Difficulty a, Difficulty b, int size, long budgetMs, int games, AtomicInteger next) {
+            this.a = a;
+            this.b = b;
+            this.size = size;
+            this.budgetMs = budgetMs;
+            this.games = games;
+            this.next = next;
+        }
+
+        @Override
+        public Worker call() {
+            // Boards get the stronger level's item mix, as in a UI game against it
+            Difficulty boardLevel = a.compareTo(b) >= 0 ? a : b;
+            for (int g; (g = next.getAndIncrement()) < games; ) {
+                BoardModel m = new BoardModel(size, size, boardLevel, BASE_SEED + g / 2);
+                boolean aIsHuman = (g & 1) == 0;
+                int winner = play(m, aIsHuman);
+                if (winner == 0) draws++;
+                else if ((winner > 0) == aIsHuman) winsA++;
+                else winsB++;
+            }
+            return this;
+        }
+
+        // Returns 1 if the human seat won, -1 if the CPU seat won, 0 for a draw
+        private int play(BoardModel m, boolean aIsHuman) {
+            MoveLog log = new MoveLog(m.seed(), m.rows, m.cols, aIsHuman ? b : a, m.difficulty());
+            int passes = 0;
+            int ply = 0;
+            while (!m.gameOver && passes < 2) {
+                if (ply == MAX_PLIES) {
+                    unfinished++;
+                    break;
+                }
+                boolean human = (ply++ & 1) == 0;
+                boolean isA = human == aIsHuman;
+
+                // Workers already fill the cores, so each searches on its own thread only
+                Greedy.Decision d = Greedy.decide(human ? m.mirrored() : m, isA ? a : b, budgetMs, false);
+                (isA ? latencyA : latencyB).add(d.nanos);
+                log.record(d.direction);
+                if (!human && d.nanos > slowestNanos) {
+                    slowestNanos = d.nanos;
+                    slowestGame = log;
+                }
+
+                // A side without a move, or whose move changes nothing, passes
+                passes = move(m, human, d.direction) ? 0 : passes + 1;
+                if (m.gameOver) {
+                    plies += ply;
+                    return human ? -1 : 1;  // the mover hit a mine
+                }
+                m.checkEndGame();
+            }
+            plies += ply;
+            return Integer.signum(m.humanScore - m.cpuScore);
+        }
+
+        private static boolean move(BoardModel m, boolean human, Direction d) {
+            if (d == null) return false;
+            int before = human ? m.index(m.humanRow, m.humanCol) : m.index(m.cpuRow, m.cpuCol);
+            int shields = human ? m.humanShields : m.cpuShields;
+            m.move(human, d);
+            int after = human ? m.index(m.humanRow, m.humanCol) : m.index(m.cpuRow, m.cpuCol);
+            return m.gameOver || after != before || shields != (human ? m.humanShields : m.cpuShields);
+        }
+
+        void add(Worker w) {
+            winsA += w.winsA;
+            winsB += w.winsB;
+            draws += w.draws;
+            unfinished += w.unfinished;
+            plies += w.plies;
+            latencyA.add(w.latencyA);
+            latencyB.add(w.latencyB);
+            if (w.slowestNanos > slowestNanos) {
+                slowestNanos = w.slowestNanos;
+                slowestGame = w.slowestGame;
+            }
+        }
+    }
+
+    // Growable list of decision times in nanoseconds
+    private static final class Samples {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        void add(Samples other) {
+            for (int i = 0; i < other.size; i++) add(other.values[i]);
+        }
+
+        void print(String name) {
+            if (size == 0) return;
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            double sum = 0;
+            for (long v : sorted) sum += v;
+            System.out.printf("%-8s %10d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, size, sum / size / 1e6, percentile(sorted, 50), percentile(sorted, 90),
+                percentile(sorted, 99), sorted[size - 1] / 1e6);
+        }
+
+        // Nearest-rank percentile of sorted, in milliseconds
+        private static double percentile(long[] sorted, int p) {
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.max(rank, 1) - 1] / 1e6;
+        }
+    }
+}
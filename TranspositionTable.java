@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+// Fixed-size transposition table on primitive arrays.
+// One entry per slot, replaced when the new result was searched at least as deep.
+public class TranspositionTable {
+
+    // What a stored value means for an alpha-beta search
+    public static final byte EXACT = 0;
+    public static final byte LOWER = 1;  // fail-high: true value >= stored
+    public static final byte UPPER = 2;  // fail-low:  true value <= stored
+
+    public static final byte NO_MOVE = -1;
+
+    private final long[] keys;
+    private final double[] values;
+    private final byte[] depths;
+    private final byte[] bounds;
+    private final byte[] moves;
+    private final int[] stamps;
+    private final int mask;
+
+    // Entries written under an older stamp count as empty
+    private int stamp = 1;
+
+    public TranspositionTable(int log2Size) {
+        int size = 1 << log2Size;
+        keys = new long[size];
+        values = new double[size];
+        depths = new byte[size];
+        bounds = new byte[size];
+        moves = new byte[size];
+        stamps = new int[size];
+        mask = size - 1;
+    }
+
+    // Invalidates every entry in O(1); call once per decision
+    public void newSearch() {
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    // Returns the slot holding key searched to at least minDepth, or -1 (minDepth 0 finds any entry)
+    public int probe(long key, int minDepth) {
+        int slot = (int) key & mask;
+        if (stamps[slot] == stamp && keys[slot] == key && depths[slot] >= minDepth) return slot;
+        return -1;
+    }
+
+    public double value(int slot) { return values[slot]; }
+    public int depth(int slot)    { return depths[slot]; }
+    public byte bound(int slot)   { return bounds[slot]; }
+    public int move(int slot)     { return moves[slot]; }
+
+    // Stores every entry of the current search into dst, in slot order
+    public void copyInto(TranspositionTable dst) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (stamps[slot] == stamp) dst.store(keys[slot], depths[slot], values[slot], bounds[slot], moves[slot]);
+        }
+    }
+
+    public void store(long key, int depth, double value) {
+        store(key, depth, value, EXACT, NO_MOVE);
+    }
+
+    public void store(long key, int depth, double value, byte bound, int move) {
+        int slot = (int) key & mask;
+        if (stamps[slot] == stamp && keys[slot] != key && depths[slot] > depth) return;
+        keys[slot] = key;
+        values[slot] = value;
+        depths[slot] = (byte) depth;
+        bounds[slot] = bound;
+        moves[slot] = (byte) move;
+        stamps[slot] = stamp;
+    }
+}
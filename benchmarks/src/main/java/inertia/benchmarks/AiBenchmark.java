@@ -0,0 +1,147 @@
+package inertia.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// JMH benchmarks for the board and AI hot paths, over boards generated from fixed seeds.
+// Run with the gc profiler for bytes allocated per operation:
+//
+//   java -jar benchmarks/target/benchmarks.jar [-prof gc] [-p size=64] [-p budgetMs=10]
+//
+// The decide benchmarks also report the search's nodes and completed depth as rates:
+// nodes is nodes/s, and depth divided by the benchmark's ops/s is the average depth.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AiBenchmark {
+
+    private static final int BOARDS = 8;
+    private static final long BASE_SEED = 20240101L;
+
+    @Param({"12", "32", "64", "128", "256"})
+    public int size;
+
+    @Param({"10"})
+    public long budgetMs;
+
+    private Object[] boards;
+    private int[] cells;   // open cells of boards[0], as row * size + col
+    private long i;        // counts calls, so benchmarks cycle through boards and cells
+
+    private Object easy, medium, hard, expert;
+
+    // Search telemetry of the decide benchmarks, reported per second of the iteration
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Search {
+        public long nodes;
+        public long depth;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = depth = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boards = new Object[BOARDS];
+        for (int b = 0; b < BOARDS; b++) boards[b] = Game.newBoard(size, "HARD", BASE_SEED + b);
+
+        int n = 0;
+        cells = new int[size * size];
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+                if (!Game.isWall(boards[0], r, c)) cells[n++] = r * size + c;
+        cells = Arrays.copyOf(cells, n);
+
+        easy = Game.difficulty("EASY");
+        medium = Game.difficulty("MEDIUM");
+        hard = Game.difficulty("HARD");
+        expert = Game.difficulty("EXPERT");
+    }
+
+    @Benchmark
+    public long slidePacked() {
+        long k = i++;
+        Object m = boards[(int) (k % BOARDS)];
+        int cell = cells[(int) ((k >>> 3) % cells.length)];
+        return Game.slidePacked(m, cell / size, cell % size, Game.DIRECTIONS[(int) (k & 7)]);
+    }
+
+    // The public query the UI and older callers use: slidePacked plus a SlideResult
+    @Benchmark
+    public Object slide() {
+        long k = i++;
+        Object m = boards[(int) (k % BOARDS)];
+        int cell = cells[(int) ((k >>> 3) % cells.length)];
+        return Game.slide(m, cell / size, cell % size, Game.DIRECTIONS[(int) (k & 7)], false);
+    }
+
+    @Benchmark
+    public long pruneUnreachableGems() {
+        Object m = boards[(int) (i++ % BOARDS)];
+        Game.pruneUnreachableGems(m);
+        return Game.itemHash(m);
+    }
+
+    @Benchmark
+    public boolean hasAnySafeMove() {
+        long k = i++;
+        Object m = boards[(int) (k % BOARDS)];
+        int cell = cells[(int) ((k / BOARDS) % cells.length)];
+        return Game.hasAnySafeMove(m, cell / size, cell % size, (int) (k & 1));
+    }
+
+    @Benchmark
+    public boolean checkEndGame() {
+        Object m = boards[(int) (i++ % BOARDS)];
+        Game.checkEndGame(m);
+        return Game.gameOver(m);
+    }
+
+    @Benchmark
+    public void decideEasy(Search search, Blackhole bh) {
+        decide(easy, search, bh);
+    }
+
+    @Benchmark
+    public void decideMedium(Search search, Blackhole bh) {
+        decide(medium, search, bh);
+    }
+
+    @Benchmark
+    public void decideHard(Search search, Blackhole bh) {
+        decide(hard, search, bh);
+    }
+
+    @Benchmark
+    public void decideExpert(Search search, Blackhole bh) {
+        decide(expert, search, bh);
+    }
+
+    private void decide(Object level, Search search, Blackhole bh) {
+        Object d = Game.decide(boards[(int) (i++ % BOARDS)], level, budgetMs);
+        search.nodes += Game.nodes(d);
+        search.depth += Game.depth(d);
+        bh.consume(d);
+    }
+}
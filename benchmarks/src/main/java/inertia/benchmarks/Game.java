@@ -0,0 +1,207 @@
+package inertia.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+// The game's classes live in the unnamed package, which a named package cannot import,
+// and JMH rejects benchmarks in the unnamed package. So the benchmarks call the game
+// through method handles looked up once here. The handles are static final with their
+// game types erased to Object, so the JIT inlines them like direct calls.
+final class Game {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final Class<?> BOARD = load("BoardModel");
+    private static final Class<?> DIFFICULTY = load("Difficulty");
+    private static final Class<?> DIRECTION = load("Direction");
+    private static final Class<?> GREEDY = load("Greedy");
+    private static final Class<?> DECISION = load("Greedy$Decision");
+
+    // (int rows, int cols, Object difficulty, long seed) -> Object board
+    private static final MethodHandle NEW_BOARD = erase(constructor(BOARD,
+        int.class, int.class, DIFFICULTY, long.class));
+    private static final MethodHandle SLIDE_PACKED = erase(method(BOARD, "slidePacked",
+        int.class, int.class, DIRECTION));
+    private static final MethodHandle SLIDE = erase(method(BOARD, "slide",
+        int.class, int.class, DIRECTION, boolean.class));
+    private static final MethodHandle PRUNE = erase(method(BOARD, "pruneUnreachableGems"));
+    private static final MethodHandle ITEM_HASH = erase(method(BOARD, "itemHash"));
+    private static final MethodHandle HAS_SAFE_MOVE = erase(method(BOARD, "hasAnySafeMove",
+        int.class, int.class, int.class));
+    private static final MethodHandle CHECK_END_GAME = erase(method(BOARD, "checkEndGame"));
+    private static final MethodHandle GAME_OVER = erase(getter(BOARD, "gameOver", boolean.class));
+    private static final MethodHandle IS_WALL = erase(method(BOARD, "isWall", int.class, int.class));
+    private static final MethodHandle DECIDE = erase(staticMethod(GREEDY, "decide",
+        DECISION, BOARD, DIFFICULTY, long.class));
+    private static final MethodHandle DECISION_DEPTH = erase(getter(DECISION, "depth", int.class));
+    private static final MethodHandle DECISION_NODES = erase(getter(DECISION, "nodes", long.class));
+
+    // Direction.ALL, in ordinal order
+    static final Object[] DIRECTIONS = DIRECTION.getEnumConstants();
+
+    private Game() {}
+
+    static Object newBoard(int size, String difficulty, long seed) {
+        try {
+            return (Object) NEW_BOARD.invokeExact(size, size, difficulty(difficulty), seed);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object difficulty(String name) {
+        return Enum.valueOf((Class) DIFFICULTY, name);
+    }
+
+    static long slidePacked(Object board, int r, int c, Object direction) {
+        try {
+            return (long) SLIDE_PACKED.invokeExact(board, r, c, direction);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // BoardModel.slide, returning its SlideResult
+    static Object slide(Object board, int r, int c, Object direction, boolean mutate) {
+        try {
+            return (Object) SLIDE.invokeExact(board, r, c, direction, mutate);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void pruneUnreachableGems(Object board) {
+        try {
+            PRUNE.invokeExact(board);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static long itemHash(Object board) {
+        try {
+            return (long) ITEM_HASH.invokeExact(board);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean hasAnySafeMove(Object board, int r, int c, int shields) {
+        try {
+            return (boolean) HAS_SAFE_MOVE.invokeExact(board, r, c, shields);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void checkEndGame(Object board) {
+        try {
+            CHECK_END_GAME.invokeExact(board);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean gameOver(Object board) {
+        try {
+            return (boolean) GAME_OVER.invokeExact(board);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean isWall(Object board, int r, int c) {
+        try {
+            return (boolean) IS_WALL.invokeExact(board, r, c);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // Greedy.decide; read the result with depth() and nodes()
+    static Object decide(Object board, Object difficulty, long budgetMillis) {
+        try {
+            return (Object) DECIDE.invokeExact(board, difficulty, budgetMillis);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int depth(Object decision) {
+        try {
+            return (int) DECISION_DEPTH.invokeExact(decision);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static long nodes(Object decision) {
+        try {
+            return (long) DECISION_NODES.invokeExact(decision);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Game class " + name + " is not on the classpath", e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... params) {
+        try {
+            return LOOKUP.findConstructor(owner, MethodType.methodType(void.class, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Package-private methods (pruneUnreachableGems) are reached through reflection
+    private static MethodHandle method(Class<?> owner, String name, Class<?>... params) {
+        try {
+            Method m = owner.getDeclaredMethod(name, params);
+            m.setAccessible(true);
+            return LOOKUP.unreflect(m);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle staticMethod(Class<?> owner, String name, Class<?> returns, Class<?>... params) {
+        try {
+            return LOOKUP.findStatic(owner, name, MethodType.methodType(returns, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle getter(Class<?> owner, String name, Class<?> type) {
+        try {
+            return LOOKUP.findGetter(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Same handle with every game class in its type replaced by Object
+    private static MethodHandle erase(MethodHandle h) {
+        MethodType t = h.type();
+        for (int i = 0; i < t.parameterCount(); i++) {
+            if (!t.parameterType(i).isPrimitive()) t = t.changeParameterType(i, Object.class);
+        }
+        if (!t.returnType().isPrimitive()) t = t.changeReturnType(Object.class);
+        return h.asType(t);
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new IllegalStateException(t);
+    }
+}